@@ -0,0 +1,140 @@
+package com.reactivespring.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewRestClient;
+import com.reactivespring.controller.Moviescontroller;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//le vrai Moviescontroller contre des clients en memoire :
+//retrieveMovieById sequentiel (flatMap) ou speculatif (zip, movies.speculativeReviews), et streamMovieById (NDJSON)
+//latencyMillis simule le temps de reponse de chaque service (0 = cout du pipeline seul)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final String MOVIE_ID = "abc";
+
+    @Param({ "10", "100", "1000" })
+    private int reviewCount;
+
+    @Param({ "0", "1" })
+    private long latencyMillis;
+
+    private Moviescontroller sequential;
+    private Moviescontroller speculative;
+    private MockServerWebExchange exchange;
+
+    @Setup
+    public void setUp() {
+        var latency = Duration.ofMillis(latencyMillis);
+        var moviesInfoRestClient = new StubMoviesInfoRestClient(BenchmarkData.movieInfo(), latency);
+        var reviewRestClient = new StubReviewRestClient(BenchmarkData.reviews(reviewCount), latency);
+        sequential = controller(moviesInfoRestClient, reviewRestClient, false);
+        speculative = controller(moviesInfoRestClient, reviewRestClient, true);
+        //cree une fois (codecs, session...) : sans If-None-Match, checkNotModified reste a false d'un appel a l'autre
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/movies/" + MOVIE_ID));
+    }
+
+    private static Moviescontroller controller(MoviesInfoRestClient moviesInfoRestClient,
+            ReviewRestClient reviewRestClient, boolean speculativeReviews) {
+        //pas de contexte spring : les @Value sont poses a la main
+        var controller = new Moviescontroller(moviesInfoRestClient, reviewRestClient, null);
+        ReflectionTestUtils.setField(controller, "speculativeReviews", speculativeReviews);
+        ReflectionTestUtils.setField(controller, "defaultReviewsMode", "full");
+        return controller;
+    }
+
+    @Benchmark
+    public Movie flatMapCollectList() {
+        return sequential.retrieveMovieById(MOVIE_ID, null, exchange).block();
+    }
+
+    @Benchmark
+    public Movie zip() {
+        return speculative.retrieveMovieById(MOVIE_ID, null, exchange).block();
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        sequential.streamMovieById(MOVIE_ID, null)
+            .doOnNext(blackhole::consume)
+            .blockLast();
+    }
+
+    //seules les methodes appelees par le controller sont remplacees, sans WebClient ni cache
+    static class StubMoviesInfoRestClient extends MoviesInfoRestClient {
+
+        private final MovieInfo movieInfo;
+        private final Duration latency;
+
+        StubMoviesInfoRestClient(MovieInfo movieInfo, Duration latency) {
+            super(null, null, null, null, null);
+            movieInfo.setEtag("\"info1\"");
+            this.movieInfo = movieInfo;
+            this.latency = latency;
+        }
+
+        @Override
+        public Mono<MovieInfo> retrieveMovie(String movieId) {
+            var mono = Mono.just(movieInfo);
+            return latency.isZero() ? mono : mono.delayElement(latency);
+        }
+    }
+
+    static class StubReviewRestClient extends ReviewRestClient {
+
+        private final List<Review> reviews;
+        private final Duration latency;
+
+        StubReviewRestClient(List<Review> reviews, Duration latency) {
+            super(null, null, null, null, null);
+            this.reviews = reviews;
+            this.latency = latency;
+        }
+
+        @Override
+        public Mono<ResponseEntity<List<Review>>> retrieveReviewList(String movieId, String ifNoneMatch) {
+            //comme le WebClient : la liste decodee en entier avec l'ETag du service review
+            var mono = Flux.fromIterable(reviews)
+                .collectList()
+                .map(reviewList -> ResponseEntity.ok().eTag("\"reviews1\"").body(reviewList));
+            return latency.isZero() ? mono : mono.delaySubscription(latency);
+        }
+
+        @Override
+        public Flux<Review> streamReviews(String movieId, Integer limit) {
+            var flux = Flux.fromIterable(reviews);
+            return latency.isZero() ? flux : flux.delaySubscription(latency);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.reactivespring.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+
+//donnees de taille realiste : 12 acteurs, commentaires de ~200 caracteres
+public class BenchmarkData {
+
+    private static final String COMMENT = "Great pacing, a strong cast and a score that carries the whole second act. "
+        + "The ending drags a little but the action scenes hold up very well, even on a second viewing.";
+
+    public static MovieInfo movieInfo() {
+        var cast = IntStream.rangeClosed(1, 12)
+            .mapToObj(i -> "Actor number " + i)
+            .collect(Collectors.toList());
+        return new MovieInfo("5f8b7c9e2d1a4b3c6e0f1a2b", "Batman Begins", 2005, cast, LocalDate.parse("2005-06-15"));
+    }
+
+    public static List<Review> reviews(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new Review("review-" + i, 1L, COMMENT, (double) (i % 10)))
+            .collect(Collectors.toList());
+    }
+
+    public static Movie movie(int reviewCount) {
+        return new Movie(movieInfo(), reviews(reviewCount));
+    }
+}
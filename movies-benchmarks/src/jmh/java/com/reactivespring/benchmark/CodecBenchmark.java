@@ -0,0 +1,112 @@
+package com.reactivespring.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+
+//encodage / decodage jackson des objets echanges entre services, en JSON et en Smile
+//la taille encodee sort dans les resultats a cote du temps (compteur bytes)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({ "JSON", "SMILE" })
+    private String codec;
+
+    @Param({ "10", "100", "1000" })
+    private int reviewCount;
+
+    private ObjectMapper mapper;
+    private JavaType reviewListType;
+
+    private MovieInfo movieInfo;
+    private List<Review> reviews;
+    private Movie movie;
+
+    private byte[] movieInfoBytes;
+    private byte[] reviewsBytes;
+    private byte[] movieBytes;
+
+    //EVENTS : valeur lue telle quelle en fin d'iteration, la taille du dernier payload
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class EncodedSize {
+        public long bytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        //meme configuration que l'ObjectMapper de spring boot (modules jsr310, dates ISO)
+        var builder = "SMILE".equals(codec) ? Jackson2ObjectMapperBuilder.smile() : Jackson2ObjectMapperBuilder.json();
+        mapper = builder.build();
+        reviewListType = mapper.getTypeFactory().constructCollectionType(List.class, Review.class);
+        movieInfo = BenchmarkData.movieInfo();
+        reviews = BenchmarkData.reviews(reviewCount);
+        movie = BenchmarkData.movie(reviewCount);
+        movieInfoBytes = mapper.writeValueAsBytes(movieInfo);
+        reviewsBytes = mapper.writeValueAsBytes(reviews);
+        movieBytes = mapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] encodeMovieInfo(EncodedSize size) throws IOException {
+        return encoded(mapper.writeValueAsBytes(movieInfo), size);
+    }
+
+    @Benchmark
+    public MovieInfo decodeMovieInfo(EncodedSize size) throws IOException {
+        size.bytes = movieInfoBytes.length;
+        return mapper.readValue(movieInfoBytes, MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews(EncodedSize size) throws IOException {
+        return encoded(mapper.writeValueAsBytes(reviews), size);
+    }
+
+    @Benchmark
+    public List<Review> decodeReviews(EncodedSize size) throws IOException {
+        size.bytes = reviewsBytes.length;
+        return mapper.readValue(reviewsBytes, reviewListType);
+    }
+
+    @Benchmark
+    public byte[] encodeMovie(EncodedSize size) throws IOException {
+        return encoded(mapper.writeValueAsBytes(movie), size);
+    }
+
+    @Benchmark
+    public Movie decodeMovie(EncodedSize size) throws IOException {
+        size.bytes = movieBytes.length;
+        return mapper.readValue(movieBytes, Movie.class);
+    }
+
+    private static byte[] encoded(byte[] bytes, EncodedSize size) {
+        size.bytes = bytes.length;
+        return bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.reactivespring.exception.DeadlineExceededException;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//temps restant envoye par movies-service : le handler, l'ecriture de la reponse et la requete Mongo
+//sont annules a l'expiration (un filtre de route ne couvrirait pas l'ecriture du body), reponse 504
+//desactive dans movies-service, ou MoviesDeadlineWebFilter combine ce header avec le budget de chaque route
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "deadline.header.enabled", matchIfMissing = true)
+public class DeadlineWebFilter implements WebFilter {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var header = exchange.getRequest().getHeaders().getFirst(HEADER);
+        if (header == null) {
+            return chain.filter(exchange);
+        }
+        long remainingMs;
+        try {
+            remainingMs = Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            return chain.filter(exchange);
+        }
+        if (remainingMs <= 0) {
+            return Mono.error(new DeadlineExceededException("Request deadline exceeded"));
+        }
+        return chain.filter(exchange)
+            .timeout(Duration.ofMillis(remainingMs))
+            .onErrorMap(TimeoutException.class, ex -> {
+                log.warn("Request {} cancelled : deadline exceeded", exchange.getRequest().getPath().value());
+                return new DeadlineExceededException("Request deadline exceeded");
+            });
+    }
+}
@@ -0,0 +1,55 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+//index declares sur les documents (@Indexed, @CompoundIndex) crees au demarrage, avant le warm-up et la readiness
+//(spring.data.mongodb.auto-index-creation est desactive par defaut et ne previent pas en cas d'echec)
+//ensureIndex est idempotent : rien n'est reconstruit si l'index existe deja avec la meme definition
+@Slf4j
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.ReactiveMongoTemplate")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MongoIndexes implements ApplicationRunner {
+
+    private final ReactiveMongoTemplate template;
+    private final Duration timeout;
+
+    public MongoIndexes(ReactiveMongoTemplate template, @Value("${mongo.indexes.timeout:30s}") Duration timeout) {
+        this.template = template;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        var mappingContext = template.getConverter().getMappingContext();
+        var resolver = IndexResolver.create(mappingContext);
+        var start = System.nanoTime();
+        try {
+            var count = Flux.fromIterable(mappingContext.getPersistentEntities())
+                .filter(entity -> entity.isAnnotationPresent(Document.class))
+                .concatMap(entity -> Flux.fromIterable(resolver.resolveIndexFor(entity.getType()))
+                    .concatMap(index -> template.indexOps(entity.getType()).ensureIndex(index))
+                    .doOnNext(name -> log.info("Index {} ensured on {}", name, entity.getCollection())))
+                .count()
+                .block(timeout);
+            log.info("{} indexes ensured in {} ms", count, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (RuntimeException ex) {
+            //conflit de definition ou Mongo injoignable : le service demarre quand meme, les requetes feront des COLLSCAN
+            log.error("Index creation failed, queries may scan whole collections : {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.reactivespring.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+//complete StartupReport dans les services qui ont Mongo : le driver reactif se connecte au premier appel,
+//on mesure la connexion des que l'application est prete plutot qu'a la premiere requete
+@Slf4j
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.ReactiveMongoTemplate")
+public class MongoStartupPing {
+
+    //pas de template dans les tests de slice web
+    private final ObjectProvider<ReactiveMongoTemplate> mongoTemplate;
+    private final boolean exitWhenReady;
+
+    public MongoStartupPing(ObjectProvider<ReactiveMongoTemplate> mongoTemplate,
+            @Value("${startup.exitWhenReady:false}") boolean exitWhenReady) {
+        this.mongoTemplate = mongoTemplate;
+        this.exitWhenReady = exitWhenReady;
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        //demarrage d'entrainement AppCDS : la JVM s'arrete, pas de connexion
+        if (exitWhenReady) {
+            return;
+        }
+        mongoTemplate.ifAvailable(template -> template.executeCommand("{ ping: 1 }")
+            .elapsed()
+            .subscribe(ping -> log.info("Startup : Mongo connected in {} ms", ping.getT1()),
+                ex -> log.warn("Startup : Mongo ping failed : {}", ex.getMessage())));
+    }
+}
@@ -0,0 +1,158 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+//mode dev/test (mongo.queryPlans.enabled) : chaque forme de requete (filtre et tri sans les valeurs) est passee
+//une fois a explain, un plan avec un COLLSCAN est signale, ainsi que toute requete plus lente que slowThreshold
+//l'explain part en tache de fond : la requete de l'application n'attend pas
+@Slf4j
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.ReactiveMongoTemplate")
+public class QueryPlanReporter implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+    private static final Set<String> EXPLAINED_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+    //garde-fou memoire : au-dela, les nouvelles formes ne sont plus expliquees
+    private static final int MAX_SHAPES = 1000;
+
+    private final boolean enabled;
+    private final Duration slowThreshold;
+    //resolu a l'appel : le template depend du MongoClient que ce customizer configure
+    private final ObjectProvider<ReactiveMongoTemplate> template;
+    private final Set<String> explainedShapes = ConcurrentHashMap.newKeySet();
+    //requestId -> commande en cours, pour nommer les requetes lentes
+    private final Map<Integer, String> running = new ConcurrentHashMap<>();
+
+    public QueryPlanReporter(@Value("${mongo.queryPlans.enabled:false}") boolean enabled,
+            @Value("${mongo.queryPlans.slowThreshold:100ms}") Duration slowThreshold,
+            ObjectProvider<ReactiveMongoTemplate> template) {
+        this.enabled = enabled;
+        this.slowThreshold = slowThreshold;
+        this.template = template;
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        if (enabled) {
+            builder.addCommandListener(this);
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!EXPLAINED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        //le document de l'evenement n'est valable que pendant l'appel
+        var command = explainable(event.getCommand());
+        if (command == null) {
+            return;
+        }
+        running.put(event.getRequestId(), command.toJson());
+        var shape = shape(command);
+        if (explainedShapes.size() < MAX_SHAPES && explainedShapes.add(shape)) {
+            explain(command);
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        finished(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        finished(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void finished(int requestId, long elapsedNanos) {
+        var command = running.remove(requestId);
+        if (command != null && elapsedNanos > slowThreshold.toNanos()) {
+            log.warn("Slow query : {} ms (threshold {} ms) for {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                slowThreshold.toMillis(), command);
+        }
+    }
+
+    private void explain(BsonDocument command) {
+        template.ifAvailable(mongoTemplate -> mongoTemplate
+            .executeCommand(new Document("explain", command).append("verbosity", "queryPlanner"))
+            .subscribe(plan -> {
+                if (hasCollectionScan(plan)) {
+                    log.warn("COLLSCAN : no index used by {}", command.toJson());
+                }
+            }, ex -> log.debug("Explain failed for {} : {}", command.toJson(), ex.getMessage())));
+    }
+
+    //copie de la commande sans les champs ajoutes par le driver ($db, lsid, $clusterTime...)
+    //null pour ce qu'explain ne sait pas traiter (change streams, collections systeme)
+    static BsonDocument explainable(BsonDocument command) {
+        var copy = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+                copy.put(key, value);
+            }
+        });
+        var collection = copy.get(copy.getFirstKey());
+        if (!(collection instanceof BsonString) || ((BsonString) collection).getValue().startsWith("system.")) {
+            return null;
+        }
+        var pipeline = copy.get("pipeline");
+        if (pipeline != null && pipeline.isArray() && !pipeline.asArray().isEmpty()
+                && pipeline.asArray().get(0).asDocument().containsKey("$changeStream")) {
+            return null;
+        }
+        return copy.clone();
+    }
+
+    //structure de la commande, les valeurs remplacees par ? (un seul element par tableau : $in de tailles variables)
+    static String shape(BsonValue value) {
+        if (value.isDocument()) {
+            var shape = new StringBuilder("{");
+            value.asDocument().forEach((key, child) -> shape.append(key).append(':').append(shape(child)).append(','));
+            return shape.append('}').toString();
+        }
+        if (value.isArray()) {
+            return value.asArray().isEmpty() ? "[]" : "[" + shape(value.asArray().get(0)) + "]";
+        }
+        return "?";
+    }
+
+    //un stage COLLSCAN dans le plan retenu (find) ou dans celui d'un stage d'agregation
+    static boolean hasCollectionScan(Object plan) {
+        if (plan instanceof Map) {
+            var document = (Map<?, ?>) plan;
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            return document.entrySet().stream()
+                .anyMatch(entry -> !"rejectedPlans".equals(entry.getKey()) && hasCollectionScan(entry.getValue()));
+        }
+        if (plan instanceof List) {
+            return ((List<?>) plan).stream().anyMatch(QueryPlanReporter::hasCollectionScan);
+        }
+        return false;
+    }
+}
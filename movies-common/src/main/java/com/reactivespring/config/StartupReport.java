@@ -0,0 +1,99 @@
+package com.reactivespring.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.reactivespring.warmup.WarmUp;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//temps de demarrage depuis le lancement de la JVM : port Netty ouvert, application prete, premiere requete servie
+//(connexion Mongo : voir MongoStartupPing)
+//les beans les plus lents sont logges, le detail complet est sur /actuator/startup
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupReport implements WebFilter {
+
+    private static final int SLOWEST_STEPS = 10;
+
+    private final ConfigurableApplicationContext context;
+    private final boolean exitWhenReady;
+    private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+
+    public StartupReport(ConfigurableApplicationContext context,
+            @Value("${startup.exitWhenReady:false}") boolean exitWhenReady) {
+        this.context = context;
+        this.exitWhenReady = exitWhenReady;
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        log.info("Startup : Netty bound to port {} after {} ms", event.getWebServer().getPort(), sinceJvmStart());
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        log.info("Startup : application ready after {} ms (lazy initialization : {})", sinceJvmStart(),
+            context.getEnvironment().getProperty("spring.main.lazy-initialization", "false"));
+        if (context.getApplicationStartup() instanceof BufferingApplicationStartup) {
+            logSlowestBeans(((BufferingApplicationStartup) context.getApplicationStartup()).getBufferedTimeline());
+        }
+        if (exitWhenReady) {
+            //demarrage d'entrainement AppCDS : la liste des classes chargees est ecrite a la sortie de la JVM
+            //hors du thread main, qui bloquerait les shutdown hooks
+            new Thread(() -> System.exit(SpringApplication.exit(context)), "appcds-exit").start();
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        //les requetes du warm-up ne comptent pas
+        if (firstRequest.get() && !exchange.getRequest().getHeaders().containsKey(WarmUp.HEADER)
+                && firstRequest.compareAndSet(true, false)) {
+            var path = exchange.getRequest().getPath().value();
+            return chain.filter(exchange)
+                .doFinally(signal -> log.info("Startup : first request {} served after {} ms", path, sinceJvmStart()));
+        }
+        return chain.filter(exchange);
+    }
+
+    private void logSlowestBeans(StartupTimeline timeline) {
+        timeline.getEvents().stream()
+            .filter(event -> "spring.beans.instantiate".equals(event.getStartupStep().getName()))
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(SLOWEST_STEPS)
+            .forEach(event -> log.info("Startup : bean {} created in {} ms", beanName(event),
+                event.getDuration().toMillis()));
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent event) {
+        for (var tag : event.getStartupStep().getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,17 @@
+package com.reactivespring.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//504 : deadline de la requete depassee, dans un filtre ou pendant un appel a un autre service
+//(traduite par le GlobalErrorHandler de movies-service et movies-review-service, par spring boot dans movies-info-service)
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends RuntimeException{
+
+    private String message;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
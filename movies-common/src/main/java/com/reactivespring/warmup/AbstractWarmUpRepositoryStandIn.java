@@ -0,0 +1,58 @@
+package com.reactivespring.warmup;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//stand-in de Mongo pour les requetes du warm-up : les lectures du repository renvoient des donnees fixes,
+//tout le reste de la chaine (routage, validation, ETag, Jackson, Netty) tourne pour de vrai
+//le repository n'est enveloppe que si le warm-up est active ; chaque service fournit les reponses fixes
+public abstract class AbstractWarmUpRepositoryStandIn<R> implements BeanPostProcessor {
+
+    private final Class<R> repositoryType;
+    private final boolean enabled;
+    //resolu a l'appel : un BeanPostProcessor est cree avant les autres beans
+    private final ObjectProvider<WarmUp> warmUp;
+
+    protected AbstractWarmUpRepositoryStandIn(Class<R> repositoryType, boolean enabled, ObjectProvider<WarmUp> warmUp) {
+        this.repositoryType = repositoryType;
+        this.enabled = enabled;
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !repositoryType.isInstance(bean)) {
+            return bean;
+        }
+        var proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.addInterface(repositoryType);
+        proxyFactory.addAdvice((MethodInterceptor) this::invoke);
+        return proxyFactory.getProxy();
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!warmUp.getObject().isRunning()) {
+            return invocation.proceed();
+        }
+        return invokeDuringWarmUp(invocation);
+    }
+
+    //appel pendant le warm-up : standIn(reel, fixe) pour les lectures, invocation.proceed() pour le reste
+    protected abstract Object invokeDuringWarmUp(MethodInvocation invocation) throws Throwable;
+
+    //la requete synthetique n'est connue qu'a la souscription (Context pose par WarmUp)
+    protected static <T> Flux<T> standIn(Flux<T> real, Flux<T> canned) {
+        return Flux.deferContextual(context -> WarmUp.isWarmUp(context) ? canned : real);
+    }
+
+    protected static <T> Mono<T> standIn(Mono<T> real, Mono<T> canned) {
+        return Mono.deferContextual(context -> WarmUp.isWarmUp(context) ? canned : real);
+    }
+}
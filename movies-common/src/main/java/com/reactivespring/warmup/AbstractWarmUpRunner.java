@@ -0,0 +1,131 @@
+package com.reactivespring.warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//warm-up avant de passer ready (les ApplicationRunner passent avant ReadinessState.ACCEPTING_TRAFFIC) :
+//films chauds charges pour de vrai, puis requetes synthetiques sur nos propres endpoints
+//(Jackson, Reactor, Netty compiles par le JIT) servies par les stand-ins, dans la limite de WarmUpProperties.budget
+//chaque service fournit ses URIs, ses types de reponse et le chargement d'un film chaud
+@Slf4j
+public abstract class AbstractWarmUpRunner implements ApplicationRunner {
+
+    protected static final List<MediaType> JSON_AND_SMILE = List.of(
+        MediaType.APPLICATION_JSON, new MediaType("application", "x-jackson-smile"));
+    //latence mediane des SAMPLE premieres et SAMPLE dernieres requetes
+    private static final int SAMPLE = 100;
+
+    private final WarmUpProperties properties;
+    private final WarmUp warmUp;
+    private final WebServerApplicationContext context;
+    private final List<String> uris;
+    private final List<MediaType> accepts;
+    private final Function<String, Mono<?>> preloader;
+
+    protected AbstractWarmUpRunner(WarmUpProperties properties, WarmUp warmUp, WebServerApplicationContext context,
+            List<String> uris, List<MediaType> accepts, Function<String, Mono<?>> preloader) {
+        this.properties = properties;
+        this.warmUp = warmUp;
+        this.context = context;
+        this.uris = uris;
+        this.accepts = accepts;
+        this.preloader = preloader;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        var start = System.nanoTime();
+        preloadHotMovies();
+        var remaining = properties.getBudget().minusNanos(System.nanoTime() - start);
+        if (remaining.isNegative() || remaining.isZero()) {
+            log.warn("Warm-up : budget of {} spent on hot movies, no synthetic requests", properties.getBudget());
+            return;
+        }
+        warmUp.start();
+        List<Long> latencies;
+        try {
+            latencies = syntheticRequests(remaining);
+        } finally {
+            warmUp.stop();
+            afterSyntheticRequests();
+        }
+        log.info("Warm-up : {} synthetic requests in {} ms, median latency {} ms -> {} ms", latencies.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            median(latencies.subList(0, Math.min(SAMPLE, latencies.size()))),
+            median(latencies.subList(Math.max(0, latencies.size() - SAMPLE), latencies.size())));
+    }
+
+    //etat laisse par les requetes synthetiques a effacer avant le vrai trafic
+    protected void afterSyntheticRequests() {
+    }
+
+    private void preloadHotMovies() {
+        if (properties.getHotMovieIds().isEmpty()) {
+            return;
+        }
+        var loaded = Flux.fromIterable(properties.getHotMovieIds())
+            .flatMap(movieId -> Mono.defer(() -> preloader.apply(movieId))
+                .onErrorResume(ex -> {
+                    log.warn("Warm-up : hot movie {} not loaded : {}", movieId, ex.getMessage());
+                    return Mono.empty();
+                }), properties.getConcurrency())
+            .take(properties.getBudget())
+            .count()
+            .block();
+        log.info("Warm-up : {} of {} hot movies loaded", loaded, properties.getHotMovieIds().size());
+    }
+
+    private List<Long> syntheticRequests(Duration budget) {
+        var client = WebClient.builder()
+            .baseUrl("http://localhost:" + context.getWebServer().getPort())
+            .defaultHeader(WarmUp.HEADER, "true")
+            .build();
+        var latencies = Flux.range(0, properties.getRequests())
+            .flatMap(i -> timed(client, uris.get(i % uris.size()), accepts.get(i / uris.size() % accepts.size())),
+                properties.getConcurrency())
+            .take(budget)
+            .collectList()
+            .block();
+        return latencies != null ? latencies : new ArrayList<>();
+    }
+
+    private static Mono<Long> timed(WebClient client, String uri, MediaType accept) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return client.get().uri(uri)
+                .accept(accept)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> System.nanoTime() - start);
+        })
+        .onErrorResume(ex -> {
+            log.debug("Warm-up : {} failed : {}", uri, ex.getMessage());
+            return Mono.empty();
+        });
+    }
+
+    private static String median(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return "-";
+        }
+        var sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        return String.format("%.2f", sorted.get(sorted.size() / 2) / 1e6);
+    }
+}
@@ -0,0 +1,67 @@
+package com.reactivespring.warmup;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+//etat du warm-up et marquage des requetes synthetiques
+//(header X-Warm-Up, depuis la machine, pendant le warm-up seulement)
+@Component
+public class WarmUp implements WebFilter {
+
+    public static final String HEADER = "X-Warm-Up";
+
+    private static final String CONTEXT_KEY = WarmUp.class.getName();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    //appeles par le WarmUpRunner de chaque service
+    public void start() {
+        running.set(true);
+    }
+
+    public void stop() {
+        running.set(false);
+    }
+
+    //requete synthetique : les lectures Mongo (backends) ou les appels aux autres services (movies-service)
+    //sont servis par les stand-ins
+    public static boolean isWarmUp(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, false);
+    }
+
+    //pour les filtres qui passent avant celui-ci (limite de concurrence)
+    public boolean isWarmUp(ServerWebExchange exchange) {
+        return running.get() && isSynthetic(exchange);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!isWarmUp(exchange)) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).contextWrite(WarmUp::mark);
+    }
+
+    public static Context mark(Context context) {
+        return context.put(CONTEXT_KEY, true);
+    }
+
+    private static boolean isSynthetic(ServerWebExchange exchange) {
+        var remoteAddress = exchange.getRequest().getRemoteAddress();
+        return exchange.getRequest().getHeaders().containsKey(WarmUp.HEADER)
+            && remoteAddress != null && remoteAddress.getAddress() != null
+            && remoteAddress.getAddress().isLoopbackAddress();
+    }
+}
@@ -0,0 +1,23 @@
+package com.reactivespring.warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+@Data
+@Component
+@ConfigurationProperties("warmup")
+public class WarmUpProperties {
+    private boolean enabled = false;
+    //duree max du warm-up : l'instance passe ready ensuite quoi qu'il arrive
+    private Duration budget = Duration.ofSeconds(20);
+    private int requests = 2000;
+    private int concurrency = 8;
+    //films lus pour de vrai avant de passer ready (connexions, cache Mongo ou cache movie info)
+    private List<String> hotMovieIds = new ArrayList<>();
+}
@@ -0,0 +1,47 @@
+package com.reactivespring.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+public class QueryPlanReporterTest {
+
+    @Test
+    void explainableDropsDriverFields() {
+        var command = BsonDocument.parse("{ find: 'movieInfo', filter: { year: 2005 }, $db: 'local', lsid: { id: 1 } }");
+        assertEquals(BsonDocument.parse("{ find: 'movieInfo', filter: { year: 2005 } }"),
+            QueryPlanReporter.explainable(command));
+    }
+
+    @Test
+    void changeStreamsAreNotExplained() {
+        var command = BsonDocument.parse("{ aggregate: 'movieInfo', pipeline: [ { $changeStream: {} } ], cursor: {} }");
+        assertNull(QueryPlanReporter.explainable(command));
+    }
+
+    @Test
+    void shapeIgnoresValues() {
+        var first = BsonDocument.parse("{ find: 'movieInfo', filter: { movieInfoId: { $in: [1, 2, 3] } }, limit: 10 }");
+        var second = BsonDocument.parse("{ find: 'movieInfo', filter: { movieInfoId: { $in: [4] } }, limit: 20 }");
+        var other = BsonDocument.parse("{ find: 'movieInfo', filter: { name: 'x' } }");
+        assertEquals(QueryPlanReporter.shape(first), QueryPlanReporter.shape(second));
+        assertNotEquals(QueryPlanReporter.shape(first), QueryPlanReporter.shape(other));
+    }
+
+    @Test
+    void collectionScanInWinningPlan() {
+        var collScan = Document.parse("{ queryPlanner: { winningPlan: { stage: 'SORT', inputStage: { stage: 'COLLSCAN' } } } }");
+        var ixScan = Document.parse("{ queryPlanner: { winningPlan: { stage: 'FETCH', inputStage: { stage: 'IXSCAN' } },"
+            + " rejectedPlans: [ { stage: 'COLLSCAN' } ] } }");
+        var aggregation = Document.parse("{ stages: [ { $cursor: { queryPlanner: { winningPlan: { stage: 'COLLSCAN' } } } } ] }");
+        assertTrue(QueryPlanReporter.hasCollectionScan(collScan));
+        assertFalse(QueryPlanReporter.hasCollectionScan(ixScan));
+        assertTrue(QueryPlanReporter.hasCollectionScan(aggregation));
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.reactivespring.service.MovieInfoChangeStream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//nombre d'abonnes au flux /v1/movieInfos/stream
+@Configuration
+public class StreamMetricsConfig {
+
+    //resolu a la lecture de la jauge : MovieInfoChangeStream -> Mongo -> metriques Mongo -> MeterRegistry formerait un cycle
+    @Bean
+    public MeterBinder movieInfoStreamMetrics(ObjectProvider<MovieInfoChangeStream> changeStream) {
+        return registry -> Gauge.builder("movieinfos.stream.subscribers", changeStream,
+                provider -> provider.getObject().subscriberCount())
+            .description("Current subscribers of the movie info change stream")
+            .register(registry);
+    }
+}
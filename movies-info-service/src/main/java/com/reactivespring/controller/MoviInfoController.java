@@ -1,66 +1,192 @@
 package com.reactivespring.controller;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
 import javax.validation.Valid;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.service.MovieInfoChangeStream;
 import com.reactivespring.service.MovieInfoService;
 
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/v1/movieInfos")
 public class MoviInfoController {
 
+    //champs acceptes par fields= : les proprietes de MovieInfo
+    private static final Set<String> FIELDS = Arrays.stream(MovieInfo.class.getDeclaredFields())
+        .filter(field -> !Modifier.isStatic(field.getModifiers()))
+        .map(Field::getName)
+        .collect(Collectors.toUnmodifiableSet());
+
     private final MovieInfoService service;
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
+    private final MovieInfoChangeStream changeStream;
+
+    @Value("${movieInfos.page.defaultSize:100}")
+    private int defaultPageSize;
+
+    @Value("${movieInfos.page.maxSize:1000}")
+    private int maxPageSize;
+
+    @Value("${movieInfos.stream.batchSize:100}")
+    private int streamBatchSize;
 
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@Valid @RequestBody MovieInfo movieInfo) {
-        return service.addMovieInfo(movieInfo)
-                .doOnNext(savedinfo -> movieInfoSink.tryEmitNext(savedinfo));
+        return service.addMovieInfo(movieInfo);
     }
 
-    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    @ResponseStatus(HttpStatus.ACCEPTED)
-    public Flux<MovieInfo> getStream() {
-        return movieInfoSink.asFlux().log();
+    //POST /v1/movieInfos/bulk : un MovieInfo par ligne NDJSON, un resultat par ligne (voir MovieInfoService)
+    //le corps est lu en lignes brutes : une ligne mal formee donne une erreur sur cette ligne, pas un 400 global
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoBulkResult> bulkAddMovieInfos(@RequestBody Flux<String> lines) {
+        return service.bulkAddMovieInfos(lines);
     }
 
+    //GET /v1/movieInfos/stream : changements de la collection (voir MovieInfoChangeStream), en NDJSON ou en SSE
+    //(id de l'evenement = resume token) ; reprise apres un evenement avec resumeAfter ou le header Last-Event-ID
+    @GetMapping(value = "/stream", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public ResponseEntity<Flux<?>> getStream(@RequestParam(value = "resumeAfter", required = false) String resumeAfter,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            ServerWebExchange exchange) {
+        var events = changeStream.events(resumeAfter != null ? resumeAfter : lastEventId);
+        if (exchange.getRequest().getHeaders().getAccept().contains(MediaType.TEXT_EVENT_STREAM)) {
+            return ResponseEntity.accepted().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(events.map(event -> ServerSentEvent.builder(event)
+                    .id(event.getId())
+                    .event(event.getType().name().toLowerCase())
+                    .build()));
+        }
+        return ResponseEntity.accepted().contentType(MediaType.APPLICATION_NDJSON).body(events);
+    }
+
+    //GET /v1/movieInfos?year=&limit=&after=&fields= : une page triee par _id, la page suivante est dans le header Link
+    //(rel="next", absent sur la derniere page) ; en NDJSON, parcours en flux depuis after au rythme du client
     @GetMapping
-    @ResponseStatus(HttpStatus.ACCEPTED)
-    public Flux<MovieInfo> getAllMovies(@RequestParam(value = "year", required = false) Integer year) {
-        if (year != null) {
-            return service.findByYear(year);
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovies(@RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            ServerWebExchange exchange) {
+        var request = exchange.getRequest();
+        var projection = projection(fields);
+        if (request.getHeaders().getAccept().contains(MediaType.APPLICATION_NDJSON)) {
+            if (limit != null && limit < 1) {
+                return Mono.error(invalidLimit(limit));
+            }
+            var movieInfos = service.streamPage(year, after, limit == null ? 0 : limit, streamBatchSize, projection);
+            return Mono.just(ResponseEntity.accepted().contentType(MediaType.APPLICATION_NDJSON).body(movieInfos));
         }
-        return service.getAll();
+        var pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            return Mono.error(invalidLimit(pageSize));
+        }
+        //un film de plus pour savoir s'il y a une page suivante
+        return service.getPage(year, after, pageSize + 1, projection)
+            .collectList()
+            .map(movieInfos -> {
+                if (movieInfos.size() <= pageSize) {
+                    return ResponseEntity.accepted().body(Flux.fromIterable(movieInfos));
+                }
+                var page = movieInfos.subList(0, pageSize);
+                return ResponseEntity.accepted()
+                    .header(HttpHeaders.LINK, nextLink(request, page.get(pageSize - 1).getMovieInfoId(), pageSize))
+                    .body(Flux.fromIterable(page));
+            });
+    }
+
+    private ResponseStatusException invalidLimit(int limit) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "limit must be between 1 and " + maxPageSize + " but was " + limit);
     }
 
+    //fields=name,year : projection Mongo, les autres champs ne sont ni lus ni serialises (movieInfoId toujours present)
+    private static Set<String> projection(List<String> fields) {
+        if (fields == null) {
+            return Set.of();
+        }
+        var projection = new HashSet<String>();
+        for (var field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "fields must be among " + new TreeSet<>(FIELDS) + " but was " + field);
+            }
+            projection.add(field);
+        }
+        return projection;
+    }
+
+    private static String nextLink(ServerHttpRequest request, String after, int limit) {
+        var next = UriComponentsBuilder.fromPath(request.getPath().value())
+            .queryParams(request.getQueryParams())
+            .replaceQueryParam("after", after)
+            .replaceQueryParam("limit", limit)
+            .encode()
+            .build();
+        return "<" + next.toUriString() + ">; rel=\"next\"";
+    }
+
+    //ETag = version du document (incrementee a chaque modification) : avec If-None-Match, la reponse est un 304 sans body
+    //pas d'ETag pour un document sans version (insere avant son introduction) tant qu'il n'a pas ete modifie
+    //(compare ici : ResponseEntityResultHandler ne le fait que pour un 200, la reponse est un 202 ;
+    //pas de @ResponseStatus, checkNotModified ne compare rien si le statut n'est plus 200)
     @GetMapping("{id}")
-    @ResponseStatus(HttpStatus.ACCEPTED)
-    public Mono<ResponseEntity<MovieInfo>> getMoviebyId(@PathVariable String id) {
-        return service.getById(id).map(ResponseEntity.accepted()::body)
+    public Mono<ResponseEntity<MovieInfo>> getMoviebyId(@PathVariable String id,
+            @RequestParam(value = "fields", required = false) List<String> fields, ServerWebExchange exchange) {
+        return service.getById(id, projection(fields)).map(movieInfo -> {
+                    var etag = etag(movieInfo);
+                    if (etag == null) {
+                        return ResponseEntity.accepted().body(movieInfo);
+                    }
+                    return exchange.checkNotModified(etag)
+                        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<MovieInfo>build()
+                        : ResponseEntity.accepted().eTag(etag).body(movieInfo);
+                })
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    private static String etag(MovieInfo movieInfo) {
+        return movieInfo.getVersion() == null ? null : "\"" + movieInfo.getVersion() + "\"";
+    }
+
+    //version dans le body (optionnelle) : 409 si le film a ete modifie depuis
     @PutMapping("{id}")
     @ResponseStatus(HttpStatus.ACCEPTED)
     public Mono<ResponseEntity<MovieInfo>> updateMoviebyId(@PathVariable String id,
@@ -71,6 +197,14 @@ public class MoviInfoController {
                                                                              // rien
     }
 
+    //PATCH /v1/movieInfos/{id} : seuls les champs envoyes sont modifies ; version (optionnelle) -> 409 si depassee
+    @PatchMapping("{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMoviebyId(@PathVariable String id, @RequestBody MovieInfo patch) {
+        return service.patchMovie(id, patch)
+                .map(ResponseEntity.ok()::body)
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMoviebyId(@PathVariable String id) {
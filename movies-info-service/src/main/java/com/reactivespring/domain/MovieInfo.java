@@ -8,8 +8,12 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,12 +22,18 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+//les champs absents d'une projection (fields=) ne sont pas serialises
+@JsonInclude(JsonInclude.Include.NON_NULL)
+//findByYear et pagination par annee : { year, _id > after } trie par _id
+@CompoundIndex(name = "year_id", def = "{ 'year': 1, '_id': 1 }")
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
 
     @NotBlank(message = "Name must be present")
+    //findByName
+    @Indexed(name = "name")
     private String name;
 
     @NotNull
@@ -33,4 +43,12 @@ public class MovieInfo {
     private List<@NotBlank(message = "Cast must be present")String> cast;
 
     private LocalDate releaseDate;
+
+    //incremente a chaque mise a jour ; renvoye par le client dans PUT/PATCH pour detecter une ecriture concurrente (409)
+    //0 a l'insertion, absent des documents inseres avant son introduction
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null);
+    }
 }
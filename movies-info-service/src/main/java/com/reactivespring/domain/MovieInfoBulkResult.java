@@ -0,0 +1,39 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//resultat d'une ligne de POST /v1/movieInfos/bulk
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoBulkResult {
+
+    //CREATED : insere ; INVALID : ligne rejetee avant Mongo (JSON ou validation) ; FAILED : refuse par Mongo
+    public enum Status { CREATED, INVALID, FAILED }
+
+    //numero de la ligne dans le corps de la requete, a partir de 1
+    private long line;
+
+    private Status status;
+
+    private String movieInfoId;
+
+    private String error;
+
+    public static MovieInfoBulkResult created(long line, String movieInfoId) {
+        return new MovieInfoBulkResult(line, Status.CREATED, movieInfoId, null);
+    }
+
+    public static MovieInfoBulkResult invalid(long line, String error) {
+        return new MovieInfoBulkResult(line, Status.INVALID, null, error);
+    }
+
+    public static MovieInfoBulkResult failed(long line, String movieInfoId, String error) {
+        return new MovieInfoBulkResult(line, Status.FAILED, movieInfoId, error);
+    }
+}
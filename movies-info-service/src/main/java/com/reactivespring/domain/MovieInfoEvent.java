@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//changement de la collection movieInfo, lu dans le change stream Mongo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type { INSERT, UPDATE, REPLACE, DELETE }
+
+    //resume token du change stream : Last-Event-ID (SSE) ou resumeAfter pour reprendre apres cet evenement
+    private String id;
+
+    private Type type;
+
+    private String movieInfoId;
+
+    //document complet apres le changement, null pour DELETE
+    private MovieInfo movieInfo;
+}
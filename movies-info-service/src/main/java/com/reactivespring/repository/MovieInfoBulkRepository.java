@@ -0,0 +1,15 @@
+package com.reactivespring.repository;
+
+import java.util.List;
+
+import com.reactivespring.domain.MovieInfo;
+
+import reactor.core.publisher.Mono;
+
+//insertion en masse (fragment de MovieInforepository)
+public interface MovieInfoBulkRepository {
+
+    //un seul insertMany non ordonne : un document refuse n'empeche pas l'insertion des autres
+    //pour chaque document, dans l'ordre : null si insere (movieInfoId renseigne), sinon l'erreur Mongo
+    Mono<List<String>> insertBatch(List<MovieInfo> movieInfos);
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.MovieInfo;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class MovieInfoBulkRepositoryImpl implements MovieInfoBulkRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<List<String>> insertBatch(List<MovieInfo> movieInfos) {
+        //meme conversion que save (_class compris) ; le driver ajoute l'_id des documents qui n'en ont pas
+        var documents = movieInfos.stream()
+            .map(movieInfo -> {
+                movieInfo.setVersion(0L);
+                var document = new Document();
+                template.getConverter().write(movieInfo, document);
+                return document;
+            })
+            .collect(Collectors.toList());
+        return template.execute(MovieInfo.class,
+                collection -> collection.insertMany(documents, new InsertManyOptions().ordered(false)))
+            .then(Mono.fromCallable(() -> errors(movieInfos, documents, null)))
+            .onErrorResume(ex -> bulkWriteException(ex) != null,
+                ex -> Mono.just(errors(movieInfos, documents, bulkWriteException(ex))));
+    }
+
+    private static List<String> errors(List<MovieInfo> movieInfos, List<Document> documents,
+            MongoBulkWriteException exception) {
+        var errors = new ArrayList<String>(Collections.nCopies(documents.size(), null));
+        if (exception != null) {
+            exception.getWriteErrors().forEach(error -> errors.set(error.getIndex(), error.getMessage()));
+        }
+        for (int i = 0; i < documents.size(); i++) {
+            if (errors.get(i) == null) {
+                var id = documents.get(i).get("_id");
+                movieInfos.get(i).setMovieInfoId(id instanceof ObjectId ? ((ObjectId) id).toHexString() : id.toString());
+            }
+        }
+        return errors;
+    }
+
+    //l'exception du driver, eventuellement traduite par Spring (DuplicateKeyException...)
+    private static MongoBulkWriteException bulkWriteException(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException) {
+                return (MongoBulkWriteException) cause;
+            }
+        }
+        return null;
+    }
+}
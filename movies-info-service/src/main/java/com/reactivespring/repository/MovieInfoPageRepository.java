@@ -0,0 +1,22 @@
+package com.reactivespring.repository;
+
+import java.util.Set;
+
+import com.reactivespring.domain.MovieInfo;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//pagination par curseur (keyset) sur _id, ou sur year puis _id quand year est fixe
+//fields : projection Mongo, seuls ces champs (et _id) sont lus ; vide : document complet
+//(fragment de MovieInforepository)
+public interface MovieInfoPageRepository {
+
+    //au plus limit films tries par _id, strictement apres le curseur after (null : depuis le debut)
+    Flux<MovieInfo> findPage(Integer year, String after, int limit, Set<String> fields);
+
+    //parcours en flux du meme ordre, batchSize documents par aller-retour Mongo (limit 0 : pas de limite)
+    Flux<MovieInfo> streamPage(Integer year, String after, int limit, int batchSize, Set<String> fields);
+
+    Mono<MovieInfo> findById(String id, Set<String> fields);
+}
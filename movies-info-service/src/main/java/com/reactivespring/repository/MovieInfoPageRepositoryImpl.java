@@ -0,0 +1,76 @@
+package com.reactivespring.repository;
+
+import java.util.Set;
+
+import org.bson.types.ObjectId;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.reactivespring.domain.MovieInfo;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class MovieInfoPageRepositoryImpl implements MovieInfoPageRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    //{ year, _id > after } trie par _id : Mongo reprend l'index au curseur, sans skip ni tri en memoire
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, String after, int limit, Set<String> fields) {
+        return template.find(project(keysetQuery(year, after).limit(limit), fields), MovieInfo.class);
+    }
+
+    //le driver demande les documents par batchSize (getMore) au rythme du client :
+    //limitRate aligne la demande de Netty sur la taille des batchs
+    @Override
+    public Flux<MovieInfo> streamPage(Integer year, String after, int limit, int batchSize, Set<String> fields) {
+        var query = keysetQuery(year, after).limit(limit).cursorBatchSize(batchSize);
+        return template.find(project(query, fields), MovieInfo.class)
+            .limitRate(batchSize);
+    }
+
+    @Override
+    public Mono<MovieInfo> findById(String id, Set<String> fields) {
+        var query = project(new Query(Criteria.where("_id").is(id)), fields);
+        if (!fields.isEmpty()) {
+            //toujours lue : c'est l'ETag de GET /v1/movieInfos/{id}
+            query.fields().include("version");
+        }
+        return template.findOne(query, MovieInfo.class);
+    }
+
+    //les champs exclus ne quittent pas Mongo : ni transfert, ni decodage BSON, ni mapping
+    private static Query project(Query query, Set<String> fields) {
+        if (!fields.isEmpty()) {
+            query.fields().include(fields.toArray(String[]::new));
+        }
+        return query;
+    }
+
+    private static Query keysetQuery(Integer year, String after) {
+        var query = new Query();
+        if (year != null) {
+            query.addCriteria(Criteria.where("year").is(year));
+        }
+        if (after != null) {
+            query.addCriteria(after(after));
+        }
+        return query.with(Sort.by(Sort.Direction.ASC, "_id"));
+    }
+
+    //_id mixtes (ObjectId generes, chaines fournies par le client) : dans l'ordre BSON les chaines passent
+    //avant les ObjectId, mais $gt ne compare que des valeurs du meme type ; apres une chaine, on garde donc
+    //les chaines suivantes puis tous les ObjectId (type BSON 7)
+    private static Criteria after(String after) {
+        if (ObjectId.isValid(after)) {
+            return Criteria.where("_id").gt(new ObjectId(after));
+        }
+        return new Criteria().orOperator(Criteria.where("_id").gt(after), Criteria.where("_id").type(7));
+    }
+}
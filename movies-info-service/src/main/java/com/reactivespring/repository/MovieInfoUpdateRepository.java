@@ -0,0 +1,16 @@
+package com.reactivespring.repository;
+
+import java.util.Map;
+
+import com.reactivespring.domain.MovieInfo;
+
+import reactor.core.publisher.Mono;
+
+//mises a jour partielles atomiques (fragment de MovieInforepository)
+public interface MovieInfoUpdateRepository {
+
+    //un seul findAndModify : $set des champs donnes et $inc de version, renvoie le document mis a jour
+    //expectedVersion non null : la mise a jour n'a lieu que si le document est encore a cette version
+    //vide si aucun document ne correspond (id inconnu ou version depassee)
+    Mono<MovieInfo> updateFields(String id, Map<String, Object> changes, Long expectedVersion);
+}
@@ -0,0 +1,32 @@
+package com.reactivespring.repository;
+
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.reactivespring.domain.MovieInfo;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class MovieInfoUpdateRepositoryImpl implements MovieInfoUpdateRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    //seuls les champs modifies partent vers Mongo, le document n'est ni relu avant ni reecrit en entier
+    @Override
+    public Mono<MovieInfo> updateFields(String id, Map<String, Object> changes, Long expectedVersion) {
+        var query = new Query(Criteria.where("_id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+        var update = new Update().inc("version", 1);
+        changes.forEach(update::set);
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), MovieInfo.class);
+    }
+}
@@ -7,7 +7,8 @@ import com.reactivespring.domain.MovieInfo;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface MovieInforepository extends ReactiveMongoRepository<MovieInfo, String>{
+public interface MovieInforepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoPageRepository,
+        MovieInfoBulkRepository, MovieInfoUpdateRepository {
     Flux<MovieInfo> findByYear(Integer year);
     Mono<MovieInfo> findByName(String name);
 }
@@ -0,0 +1,155 @@
+package com.reactivespring.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.mongodb.MongoServerException;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+//flux des changements de la collection movieInfo (insert, update, replace, delete), lu dans le change stream Mongo :
+//toutes les instances voient toutes les ecritures (Mongo doit tourner en replica set)
+//un seul curseur partage pour les nouveaux clients, avec les replaySize derniers evenements rejoues ;
+//un client qui reprend apres un resume token a son propre curseur (l'historique est celui de l'oplog)
+@Slf4j
+@Component
+public class MovieInfoChangeStream {
+
+    private static final Pattern RESUME_TOKEN = Pattern.compile("[0-9A-Fa-f]+");
+    //InvalidResumeToken, ChangeStreamFatalError, ChangeStreamHistoryLost : inutile de reessayer
+    private static final Set<Integer> RESUME_FAILURES = Set.of(260, 280, 286);
+
+    private final ReactiveMongoTemplate template;
+    private final Duration retryMinBackoff;
+    private final Duration retryMaxBackoff;
+    private final Flux<MovieInfoEvent> live;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public MovieInfoChangeStream(ReactiveMongoTemplate template,
+            @Value("${movieInfos.changeStream.replaySize:100}") int replaySize,
+            @Value("${movieInfos.changeStream.retryMinBackoff:1s}") Duration retryMinBackoff,
+            @Value("${movieInfos.changeStream.retryMaxBackoff:30s}") Duration retryMaxBackoff) {
+        this.template = template;
+        this.retryMinBackoff = retryMinBackoff;
+        this.retryMaxBackoff = retryMaxBackoff;
+        //curseur ouvert au premier client puis garde : le replay couvre aussi les periodes sans client
+        //il ne se termine jamais : une erreur ou une fin rejouee bloquerait tous les clients suivants
+        this.live = resumable(null, true)
+            .replay(replaySize)
+            .autoConnect(1);
+    }
+
+    //resumeAfter null : evenements recents puis flux en direct
+    public Flux<MovieInfoEvent> events(String resumeAfter) {
+        var events = resumeAfter == null ? live : resumable(parseResumeToken(resumeAfter), false);
+        return events
+            .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+            .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    //expose pour la jauge movieinfos.stream.subscribers
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    //en cas d'erreur, le curseur est rouvert apres le dernier evenement recu : ni perte ni doublon
+    //live : si la reprise est impossible (historique perdu apres une longue coupure) ou si le curseur se ferme
+    //(invalidate : collection supprimee ou renommee), on repart du present avec le meme backoff ;
+    //sinon (reprise demandee par un client) la reprise impossible est un 410 et la fin du curseur termine le flux
+    private Flux<MovieInfoEvent> resumable(BsonValue resumeAfter, boolean live) {
+        var lastToken = new AtomicReference<>(resumeAfter);
+        var changes = Flux.defer(() -> changes(lastToken.get()))
+            .doOnNext(change -> lastToken.set(change.getResumeToken()));
+        if (live) {
+            changes = changes.concatWith(Mono.error(CursorClosedException::new));
+        }
+        return changes
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, retryMinBackoff)
+                .maxBackoff(retryMaxBackoff)
+                .transientErrors(true)
+                .filter(ex -> live || !isResumeFailure(ex))
+                .doBeforeRetry(signal -> {
+                    if (signal.failure() instanceof CursorClosedException || isResumeFailure(signal.failure())) {
+                        //des evenements peuvent manquer entre le dernier recu et la reouverture
+                        log.warn("Movie info change stream cannot be resumed, reopening from now : {}",
+                            signal.failure().getMessage());
+                        lastToken.set(null);
+                    } else {
+                        log.warn("Movie info change stream lost, resuming : {}", signal.failure().getMessage());
+                    }
+                }))
+            .onErrorMap(MovieInfoChangeStream::isResumeFailure,
+                ex -> new ResponseStatusException(HttpStatus.GONE, "Cannot resume the movie info stream : "
+                    + ex.getMessage()))
+            .map(MovieInfoChangeStream::toEvent);
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> changes(BsonValue resumeAfter) {
+        var options = ChangeStreamOptions.builder()
+            .filter(newAggregation(match(Criteria.where("operationType").in("insert", "update", "replace", "delete"))))
+            .returnFullDocumentOnUpdate();
+        if (resumeAfter != null) {
+            options.resumeAfter(resumeAfter);
+        }
+        return template.changeStream(template.getCollectionName(MovieInfo.class), options.build(), MovieInfo.class);
+    }
+
+    private static MovieInfoEvent toEvent(ChangeStreamEvent<MovieInfo> change) {
+        var type = MovieInfoEvent.Type.valueOf(change.getOperationType().name());
+        var movieInfoId = change.getRaw().getDocumentKey().get("_id");
+        return new MovieInfoEvent(formatResumeToken(change.getResumeToken()), type,
+            movieInfoId.isObjectId() ? movieInfoId.asObjectId().getValue().toHexString() : movieInfoId.asString().getValue(),
+            type == MovieInfoEvent.Type.DELETE ? null : change.getBody());
+    }
+
+    //le resume token est un document { _data: "<hex>" } : seule la chaine hexa est exposee
+    private static String formatResumeToken(BsonValue resumeToken) {
+        return resumeToken.asDocument().getString("_data").getValue();
+    }
+
+    private static BsonValue parseResumeToken(String resumeAfter) {
+        if (!RESUME_TOKEN.matcher(resumeAfter).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid resume token " + resumeAfter);
+        }
+        return new BsonDocument("_data", new BsonString(resumeAfter));
+    }
+
+    private static class CursorClosedException extends RuntimeException {
+        CursorClosedException() {
+            super("change stream cursor closed");
+        }
+    }
+
+    private static boolean isResumeFailure(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoServerException
+                    && RESUME_FAILURES.contains(((MongoServerException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,10 +1,28 @@
 package com.reactivespring.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
 import com.reactivespring.repository.MovieInforepository;
 
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -13,37 +31,152 @@ import reactor.core.publisher.Mono;
 @Service
 public class MovieInfoService {
 
+    private static final Map<String, Function<MovieInfo, Object>> PATCHABLE_FIELDS = new LinkedHashMap<>();
+
+    static {
+        PATCHABLE_FIELDS.put("name", MovieInfo::getName);
+        PATCHABLE_FIELDS.put("year", MovieInfo::getYear);
+        PATCHABLE_FIELDS.put("cast", MovieInfo::getCast);
+        PATCHABLE_FIELDS.put("releaseDate", MovieInfo::getReleaseDate);
+    }
+
     private final MovieInforepository repository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${movieInfos.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${movieInfos.bulk.maxInFlightBatches:2}")
+    private int bulkMaxInFlightBatches;
 
+    //version 0 des l'insertion : le premier PUT/PATCH peut deja la verifier
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
+        movieInfo.setVersion(0L);
         return repository.save(movieInfo);
     }
 
-    public Flux<MovieInfo> getAll() {
-        return repository.findAll();
+    //une ligne NDJSON = un MovieInfo, parse et valide a l'arrivee ; insertMany par lots de bulkBatchSize lignes
+    //au plus bulkMaxInFlightBatches lots en cours : la lecture du corps (donc l'upload) suit le rythme de Mongo
+    //un resultat par ligne non vide, dans l'ordre des lignes
+    public Flux<MovieInfoBulkResult> bulkAddMovieInfos(Flux<String> lines) {
+        return lines.index((index, line) -> new BulkLine(index + 1, line))
+            .filter(line -> !line.getContent().isBlank())
+            .map(this::parse)
+            .buffer(bulkBatchSize)
+            .flatMapSequential(this::insertBatch, bulkMaxInFlightBatches)
+            .flatMapIterable(Function.identity());
+    }
+
+    private BulkLine parse(BulkLine line) {
+        try {
+            line.setMovieInfo(objectMapper.readValue(line.getContent(), MovieInfo.class));
+        } catch (JsonProcessingException ex) {
+            line.setResult(MovieInfoBulkResult.invalid(line.getNumber(), "Malformed JSON : " + ex.getOriginalMessage()));
+            return line;
+        }
+        //memes messages que GlobalErrorHandler pour POST /v1/movieInfos
+        var violations = validator.validate(line.getMovieInfo());
+        if (!violations.isEmpty()) {
+            line.setResult(MovieInfoBulkResult.invalid(line.getNumber(), violations.stream()
+                .map(ConstraintViolation::getMessage).sorted()
+                .collect(Collectors.joining(","))));
+        }
+        return line;
+    }
+
+    private Mono<List<MovieInfoBulkResult>> insertBatch(List<BulkLine> batch) {
+        var valid = batch.stream().filter(line -> line.getResult() == null).collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return Mono.just(results(batch));
+        }
+        var movieInfos = valid.stream().map(BulkLine::getMovieInfo).collect(Collectors.toList());
+        return repository.insertBatch(movieInfos)
+            .map(errors -> {
+                for (int i = 0; i < valid.size(); i++) {
+                    var line = valid.get(i);
+                    var movieInfoId = line.getMovieInfo().getMovieInfoId();
+                    line.setResult(errors.get(i) == null
+                        ? MovieInfoBulkResult.created(line.getNumber(), movieInfoId)
+                        : MovieInfoBulkResult.failed(line.getNumber(), movieInfoId, errors.get(i)));
+                }
+                return results(batch);
+            })
+            //erreur hors document (connexion...) : tout le lot est en echec, les lots suivants sont tentes
+            .onErrorResume(ex -> {
+                valid.forEach(line -> line.setResult(MovieInfoBulkResult.failed(line.getNumber(),
+                    line.getMovieInfo().getMovieInfoId(), ex.getMessage())));
+                return Mono.just(results(batch));
+            });
+    }
+
+    private static List<MovieInfoBulkResult> results(List<BulkLine> batch) {
+        return batch.stream().map(BulkLine::getResult).collect(Collectors.toList());
     }
 
-    public Mono<MovieInfo> getById(String id) {
-        return repository.findById(id);
+    @Data
+    private static class BulkLine {
+        private final long number;
+        private final String content;
+        private MovieInfo movieInfo;
+        private MovieInfoBulkResult result;
     }
 
+    public Flux<MovieInfo> getPage(Integer year, String after, int limit, Set<String> fields) {
+        return repository.findPage(year, after, limit, fields);
+    }
+
+    public Flux<MovieInfo> streamPage(Integer year, String after, int limit, int batchSize, Set<String> fields) {
+        return repository.streamPage(year, after, limit, batchSize, fields);
+    }
+
+    public Mono<MovieInfo> getById(String id, Set<String> fields) {
+        return fields.isEmpty() ? repository.findById(id) : repository.findById(id, fields);
+    }
+
+    //PUT : les quatre champs sont remplaces (null compris), en un seul aller-retour Mongo
     public Mono<MovieInfo> updateMovie(String id, MovieInfo movieInfo) {
-        return repository.findById(id).flatMap(m -> {
-            m.setCast(movieInfo.getCast());
-            m.setName(movieInfo.getName());
-            m.setReleaseDate(movieInfo.getReleaseDate());
-            m.setYear(movieInfo.getYear());
-            return repository.save(m);
+        var changes = new LinkedHashMap<String, Object>();
+        changes.put("name", movieInfo.getName());
+        changes.put("year", movieInfo.getYear());
+        changes.put("cast", movieInfo.getCast());
+        changes.put("releaseDate", movieInfo.getReleaseDate());
+        return update(id, changes, movieInfo.getVersion());
+    }
+
+    //PATCH : seuls les champs presents (non null) sont modifies, chacun valide avec les contraintes de MovieInfo
+    public Mono<MovieInfo> patchMovie(String id, MovieInfo patch) {
+        var changes = new LinkedHashMap<String, Object>();
+        var errors = new ArrayList<String>();
+        PATCHABLE_FIELDS.forEach((field, getter) -> {
+            var value = getter.apply(patch);
+            if (value != null) {
+                changes.put(field, value);
+                validator.validateProperty(patch, field).forEach(violation -> errors.add(violation.getMessage()));
+            }
         });
+        if (!errors.isEmpty()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                errors.stream().sorted().collect(Collectors.joining(","))));
+        }
+        if (changes.isEmpty()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "At least one of " + PATCHABLE_FIELDS.keySet() + " must be present"));
+        }
+        return update(id, changes, patch.getVersion());
     }
 
-    public Mono<Void> deleteMoviebyId(String id) {
-        return repository.deleteById(id);
+    //vide : film inconnu (404) ; avec une version attendue, on ne relit Mongo qu'en cas d'echec pour distinguer le 409
+    private Mono<MovieInfo> update(String id, Map<String, Object> changes, Long expectedVersion) {
+        return repository.updateFields(id, changes, expectedVersion)
+            .switchIfEmpty(Mono.defer(() -> expectedVersion == null ? Mono.empty() : repository.existsById(id)
+                .flatMap(exists -> exists
+                    ? Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                        "MovieInfo " + id + " is no longer at version " + expectedVersion))
+                    : Mono.empty())));
     }
 
-    public Flux<MovieInfo> findByYear(Integer year) {
-        return repository.findByYear(year);
+    public Mono<Void> deleteMoviebyId(String id) {
+        return repository.deleteById(id);
     }
-    
-    
 }
@@ -0,0 +1,57 @@
+package com.reactivespring.warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInforepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//lectures de MovieInforepository servies avec des donnees fixes pendant le warm-up
+@Component
+public class WarmUpRepositoryStandIn extends AbstractWarmUpRepositoryStandIn<MovieInforepository> {
+
+    private static final int MOVIES = 20;
+
+    public WarmUpRepositoryStandIn(@Value("${warmup.enabled:false}") boolean enabled, ObjectProvider<WarmUp> warmUp) {
+        super(MovieInforepository.class, enabled, warmUp);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object invokeDuringWarmUp(MethodInvocation invocation) throws Throwable {
+        var arguments = invocation.getArguments();
+        switch (invocation.getMethod().getName()) {
+            case "findById":
+                if (arguments[0] instanceof String) {
+                    return standIn((Mono<MovieInfo>) invocation.proceed(),
+                        Mono.just(movieInfo((String) arguments[0], 2005)));
+                }
+                return invocation.proceed();
+            case "findPage":
+            case "streamPage": {
+                var year = arguments[0] == null ? 2005 : (Integer) arguments[0];
+                var limit = (int) arguments[2];
+                return standIn((Flux<MovieInfo>) invocation.proceed(), movieInfos(year).take(limit == 0 ? MOVIES : limit));
+            }
+            default:
+                return invocation.proceed();
+        }
+    }
+
+    private static Flux<MovieInfo> movieInfos(int year) {
+        return Flux.range(0, MOVIES).map(i -> movieInfo("warmup-" + i, year));
+    }
+
+    private static MovieInfo movieInfo(String movieInfoId, int year) {
+        return new MovieInfo(movieInfoId, "Batman Begins", year,
+            List.of("Christian Bale", "Michael Cane", "Liam Neeson", "Katie Holmes"), LocalDate.parse("2005-06-15"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.warmup;
+
+import java.util.List;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.repository.MovieInforepository;
+
+//films chauds lus dans Mongo (connexions du pool ouvertes et documents en cache cote serveur),
+//puis requetes synthetiques en JSON et en Smile servies par WarmUpRepositoryStandIn
+@Component
+public class WarmUpRunner extends AbstractWarmUpRunner {
+
+    private static final List<String> URIS = List.of(
+        "/v1/movieInfos/warmup",
+        "/v1/movieInfos",
+        "/v1/movieInfos?year=2005&limit=10");
+
+    public WarmUpRunner(WarmUpProperties properties, WarmUp warmUp, WebServerApplicationContext context,
+            MovieInforepository repository) {
+        super(properties, warmUp, context, URIS, JSON_AND_SMILE, repository::findById);
+    }
+}
@@ -1,13 +0,0 @@
-package com.reactivespring;
-
-import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
-
-@SpringBootTest
-class MoviesInfoServiceApplicationTests {
-
-	@Test
-	void contextLoads() {
-	}
-
-}
@@ -0,0 +1,20 @@
+package com.reactivespring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.reactivespring.config.EmbeddedReplicaSetConfig;
+
+//meme Mongo embarque que les autres tests d'integration (profil test : version et replica set)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(EmbeddedReplicaSetConfig.class)
+class MoviesInfoServiceApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
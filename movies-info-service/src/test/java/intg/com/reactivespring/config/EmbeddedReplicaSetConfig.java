@@ -0,0 +1,41 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+
+import org.bson.Document;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import reactor.core.publisher.Mono;
+
+//Spring Boot demarre le Mongo embarque avec --replSet (spring.mongodb.embedded.storage.repl-set-name)
+//sans initialiser le replica set : replSetInitiate puis attente du primaire, avant le premier acces a Mongo
+@TestConfiguration
+public class EmbeddedReplicaSetConfig {
+
+    @Bean
+    static BeanPostProcessor replicaSetInitiator() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof MongoClient) {
+                    initiate((MongoClient) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void initiate(MongoClient client) {
+        var admin = client.getDatabase("admin");
+        Mono.from(admin.runCommand(new Document("replSetInitiate", new Document())))
+            .block(Duration.ofSeconds(10));
+        Mono.defer(() -> Mono.from(admin.runCommand(new Document("isMaster", 1))))
+            .filter(reply -> reply.getBoolean("ismaster", false))
+            .repeatWhenEmpty(50, attempts -> attempts.delayElements(Duration.ofMillis(200)))
+            .block(Duration.ofSeconds(15));
+    }
+}
@@ -0,0 +1,273 @@
+package com.reactivespring.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.reactivespring.config.EmbeddedReplicaSetConfig;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repository.MovieInforepository;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@Import(EmbeddedReplicaSetConfig.class)
+public class MoviInfoControllerTest {
+
+    @Autowired
+    MovieInforepository inforepository;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    private static String MOVIES_URL = "/v1/movieInfos";
+
+    @BeforeEach
+    void setUp() {
+
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        inforepository.saveAll(movieinfos)
+                .blockLast();//pour être sur qu'il a tout enreg dans la bd
+    }
+
+    @AfterEach
+    void tearDown() {
+        inforepository.deleteAll().block();
+    }
+    
+    @Test
+    void testAddMovieInfo() {
+        var newMovie = new MovieInfo(null, "Batman Begins 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        webTestClient.post().uri(MOVIES_URL)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().isCreated()
+        .expectBody(MovieInfo.class)
+        .consumeWith(m -> {
+            var saved = m.getResponseBody();
+            assertNotNull(saved.getMovieInfoId());
+            assertEquals(0L, saved.getVersion());
+        });
+    }
+
+    @Test
+    void testgetAllMoviesInfo() {
+        webTestClient.get().uri(MOVIES_URL).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBodyList(MovieInfo.class)
+        .hasSize(3);
+    } 
+
+    @Test
+    void testgetAllMoviesInfoByYear() {
+        var uri = UriComponentsBuilder.fromUriString(MOVIES_URL)
+        .queryParam("year", 2005).buildAndExpand().toUri();
+        webTestClient.get().uri(uri).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBodyList(MovieInfo.class)
+        .hasSize(1);
+    }
+
+    @Test
+    void testGeMoviebyId() {
+        var id = "abc";
+        webTestClient.get().uri(MOVIES_URL+"/{id}", id).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+        /* .consumeWith(m -> {
+            var saved = m.getResponseBody();
+            assertNotNull(saved);
+        })*/;
+    }
+
+    @Test
+    void testUpdateMovieInfo() {
+        var id = "abc";
+        var newMovie = new MovieInfo(null, "Dark Knight Rises 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        webTestClient.put().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody(MovieInfo.class)
+        .consumeWith(m -> {
+            var saved = m.getResponseBody();
+            assertNotNull(saved);
+            assertEquals("Dark Knight Rises 1", saved.getName());
+        });
+    }
+
+    @Test
+    void testPatchMovieInfo_version() {
+        var id = "abc";
+        var patch = new MovieInfo();
+        patch.setName("Dark Knight Rises 2");
+        webTestClient.patch().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(patch).exchange()
+        .expectStatus().isOk()
+        .expectBody(MovieInfo.class)
+        .consumeWith(m -> {
+            var updated = m.getResponseBody();
+            assertEquals("Dark Knight Rises 2", updated.getName());
+            assertEquals(2012, updated.getYear());
+            assertEquals(1L, updated.getVersion());
+        });
+        //une seconde ecriture basee sur la version 0 est refusee
+        patch.setVersion(0L);
+        webTestClient.patch().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(patch).exchange()
+        .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        patch.setVersion(1L);
+        patch.setYear(-1);
+        webTestClient.patch().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(patch).exchange()
+        .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testDeleteMovieInfo() {
+        var id = "abc"; 
+        webTestClient.delete().uri(MOVIES_URL+"/{id}", id)
+        .exchange()
+        .expectStatus().isNoContent();
+    }
+
+    @Test
+    void testUpdateMovieInfo_notfound() {
+        var id = "def";
+        var newMovie = new MovieInfo(null, "Dark Knight Rises 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        webTestClient.put().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testGeMoviebyId_notfound() {
+        var id = "def";
+        webTestClient.get().uri(MOVIES_URL+"/{id}", id).exchange()
+        .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testgetAllMoviesInfo_stream() {
+        //le curseur du change stream s'ouvre avec le premier client : on ecrit en continu jusqu'a recevoir les evenements
+        var writes = Flux.interval(Duration.ofMillis(200))
+        .concatMap(i -> inforepository.findById("abc")
+            .flatMap(m -> {
+                m.setYear(2013 + i.intValue());
+                return inforepository.save(m);
+            }))
+        .subscribe();
+        try {
+            var events = webTestClient.get().uri(MOVIES_URL+"/stream")
+            .accept(MediaType.APPLICATION_NDJSON).exchange()
+            .expectStatus().isAccepted()
+            .returnResult(MovieInfoEvent.class)
+            .getResponseBody()
+            .take(2)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+            assertEquals(2, events.size());
+            assertEquals("abc", events.get(0).getMovieInfoId());
+            assertEquals("Dark Knight Rises", events.get(0).getMovieInfo().getName());
+
+            //reprise en SSE apres le premier evenement : le suivant est relu dans l'oplog
+            var resumed = webTestClient.get().uri(MOVIES_URL+"/stream")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .header("Last-Event-ID", events.get(0).getId()).exchange()
+            .expectStatus().isAccepted()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfoEvent>>() {})
+            .getResponseBody();
+            StepVerifier.create(resumed.take(1))
+            .assertNext(event -> {
+                assertEquals(events.get(1).getId(), event.id());
+                assertEquals("abc", event.data().getMovieInfoId());
+            })
+            .verifyComplete();
+        } finally {
+            writes.dispose();
+        }
+    }
+
+    @Test
+    void testgetAllMoviesInfo_stream_invalidResumeToken() {
+        webTestClient.get().uri(MOVIES_URL+"/stream?resumeAfter=not-a-token")
+        .accept(MediaType.APPLICATION_NDJSON).exchange()
+        .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testBulkAddMovieInfos() {
+        var body = String.join("\n",
+            "{\"name\":\"Batman Begins 1\",\"year\":2005,\"cast\":[\"Christian Bale\"],\"releaseDate\":\"2005-06-15\"}",
+            "{\"name\":\"\",\"year\":-5,\"cast\":[\"Christian Bale\"]}",
+            "{not json",
+            "",
+            "{\"movieInfoId\":\"abc\",\"name\":\"Duplicate\",\"year\":2012,\"cast\":[\"Christian Bale\"]}");
+        webTestClient.post().uri(MOVIES_URL+"/bulk")
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .bodyValue(body)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(MovieInfoBulkResult.class)
+        .consumeWith(m -> {
+            var results = m.getResponseBody();
+            //la ligne vide n'a pas de resultat
+            assertEquals(4, results.size());
+            assertEquals(MovieInfoBulkResult.Status.CREATED, results.get(0).getStatus());
+            assertNotNull(results.get(0).getMovieInfoId());
+            assertEquals(2, results.get(1).getLine());
+            assertEquals(MovieInfoBulkResult.Status.INVALID, results.get(1).getStatus());
+            assertEquals("Name must be present,Year must be a positive value", results.get(1).getError());
+            assertEquals(MovieInfoBulkResult.Status.INVALID, results.get(2).getStatus());
+            assertEquals(5, results.get(3).getLine());
+            assertEquals(MovieInfoBulkResult.Status.FAILED, results.get(3).getStatus());
+        });
+        webTestClient.get().uri(MOVIES_URL+"?limit=10").exchange()
+        .expectBodyList(MovieInfo.class).hasSize(4);
+    }
+
+    @Test
+    void testIndexesEnsuredAtStartup() {
+        StepVerifier.create(mongoTemplate.indexOps(MovieInfo.class).getIndexInfo().map(IndexInfo::getName).collectList())
+        .assertNext(names -> assertTrue(names.containsAll(List.of("year_id", "name"))))
+        .verifyComplete();
+    }
+}
@@ -0,0 +1,229 @@
+package com.reactivespring.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.reactivespring.config.EmbeddedReplicaSetConfig;
+import com.reactivespring.domain.MovieInfo;
+
+import reactor.test.StepVerifier;
+
+@DataMongoTest
+@ActiveProfiles("test") // pour na pas use le
+// profile par default avec la vrai bd mais
+// la base embarquée mongo
+@Import(EmbeddedReplicaSetConfig.class)
+public class MovieInforepositoryTest {
+
+    @Autowired
+    MovieInforepository inforepository;
+
+    @BeforeEach
+    void setUp() {
+
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        inforepository.saveAll(movieinfos)
+                .blockLast();//pour être sur qu'il a tout enreg dans la bd
+    }
+
+    @AfterEach
+    void tearDown() {
+        inforepository.deleteAll().block();
+    }
+
+    @Test
+    void testFindAll() {
+        var moviesInfoFlux = inforepository.findAll().log();
+        StepVerifier.create(moviesInfoFlux)
+        .expectNextCount(3)
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindById() {
+        var moviesInfoMono = inforepository.findById("abc").log();
+        StepVerifier.create(moviesInfoMono)
+        .assertNext(m -> {
+            assertEquals("Dark Knight Rises", m.getName());
+        }).verifyComplete();
+    }
+
+    @Test
+    void saveMovie() {
+        var movieInfo = new MovieInfo(null, "Batman Begins",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var moviesInfoMono = inforepository.save(movieInfo).log();
+        StepVerifier.create(moviesInfoMono)
+        .assertNext(m -> {
+            assertNotNull(m.getMovieInfoId());
+            assertEquals("Batman Begins", m.getName());
+        }).verifyComplete();
+    }
+
+    @Test
+    void updateeMovie() {
+        var movieInfo = inforepository.findById("abc").block();
+        movieInfo.setYear(2021);
+        var moviesInfoMono = inforepository.save(movieInfo).log();
+        StepVerifier.create(moviesInfoMono)
+        .assertNext(m -> {
+            assertNotNull(m.getMovieInfoId());
+            assertEquals("Dark Knight Rises", m.getName());
+            assertEquals(2021, m.getYear());
+            
+        }).verifyComplete();
+    }
+
+    @Test
+    void testUpdateFields() {
+        StepVerifier.create(inforepository.updateFields("abc", Map.of("year", 2013), null))
+        .assertNext(m -> {
+            assertEquals(2013, m.getYear());
+            assertEquals("Dark Knight Rises", m.getName());
+            assertEquals(1L, m.getVersion());
+        }).verifyComplete();
+        //version depassee : rien n'est modifie
+        StepVerifier.create(inforepository.updateFields("abc", Map.of("year", 2014), 0L))
+        .verifyComplete();
+        StepVerifier.create(inforepository.updateFields("abc", Map.of("year", 2014), 1L))
+        .assertNext(m -> assertEquals(2L, m.getVersion()))
+        .verifyComplete();
+    }
+
+    @Test
+    void testDeleteMovie() {
+        inforepository.deleteById("abc").block();
+        var moviesInfoFlux = inforepository.findAll().log();
+        StepVerifier.create(moviesInfoFlux)
+        .expectNextCount(2)
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindByYear(){
+        var moviesInfoMono = inforepository.findByYear(2005);
+        StepVerifier.create(moviesInfoMono)
+        .assertNext(m -> {
+            assertNotNull(m.getMovieInfoId());
+            assertEquals("Batman Begins", m.getName());
+            assertEquals(2005, m.getYear());
+            
+        }).verifyComplete();
+    }
+
+    @Test
+    void testFindPage_mixedIds(){
+        //"abc" (chaine) puis les deux ObjectId : une page d'un film a la fois les parcourt tous
+        var seen = new ArrayList<String>();
+        String after = null;
+        for (var page = inforepository.findPage(null, after, 1, Set.of()).collectList().block();
+                !page.isEmpty();
+                page = inforepository.findPage(null, after, 1, Set.of()).collectList().block()) {
+            after = page.get(0).getMovieInfoId();
+            seen.add(after);
+        }
+        assertEquals(3, seen.size());
+        assertEquals("abc", seen.get(0));
+        assertEquals(3, Set.copyOf(seen).size());
+    }
+
+    @Test
+    void testFindPage(){
+        var firstPage = inforepository.findPage(null, null, 2, Set.of()).collectList().block();
+        assertEquals(2, firstPage.size());
+        //la page suivante reprend apres le dernier _id, sans doublon
+        var nextPage = inforepository.findPage(null, firstPage.get(1).getMovieInfoId(), 2, Set.of());
+        StepVerifier.create(nextPage)
+        .assertNext(m -> assertTrue(m.getMovieInfoId().compareTo(firstPage.get(1).getMovieInfoId()) > 0))
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindPageByYear(){
+        var moviesInfoFlux = inforepository.findPage(2005, null, 10, Set.of());
+        StepVerifier.create(moviesInfoFlux)
+        .assertNext(m -> assertEquals("Batman Begins", m.getName()))
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindPageWithFields(){
+        var moviesInfoFlux = inforepository.findPage(2005, null, 10, Set.of("name"));
+        StepVerifier.create(moviesInfoFlux)
+        .assertNext(m -> {
+            assertNotNull(m.getMovieInfoId());
+            assertEquals("Batman Begins", m.getName());
+            assertNull(m.getYear());
+            assertNull(m.getCast());
+        })
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindByIdWithFields(){
+        StepVerifier.create(inforepository.findById("abc", Set.of("year")))
+        .assertNext(m -> {
+            assertEquals(2012, m.getYear());
+            assertNull(m.getName());
+        })
+        .verifyComplete();
+    }
+
+    @Test
+    void testFindByName(){
+        var moviesInfoMono = inforepository.findByName("The Dark Knight");
+        StepVerifier.create(moviesInfoMono)
+        .assertNext(m -> {
+            assertNotNull(m.getMovieInfoId());
+            assertEquals("The Dark Knight", m.getName());
+            assertEquals(2008, m.getYear());
+            
+        }).verifyComplete();
+    }
+
+    @Test
+    void testInsertBatch(){
+        var movieInfos = List.of(new MovieInfo(null, "Batman Begins 1",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("abc", "Duplicate",
+                        2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20")),
+                new MovieInfo(null, "Batman Begins 2",
+                        2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+        //insertion non ordonnee : le doublon n'empeche pas l'insertion du document suivant
+        StepVerifier.create(inforepository.insertBatch(movieInfos))
+        .assertNext(errors -> {
+            assertNull(errors.get(0));
+            assertTrue(errors.get(1).contains("duplicate key"));
+            assertNull(errors.get(2));
+        })
+        .verifyComplete();
+        assertNotNull(movieInfos.get(0).getMovieInfoId());
+        assertNotNull(movieInfos.get(2).getMovieInfoId());
+        StepVerifier.create(inforepository.findAll()).expectNextCount(5).verifyComplete();
+        StepVerifier.create(inforepository.findById(movieInfos.get(0).getMovieInfoId()))
+        .assertNext(m -> assertEquals(0L, m.getVersion()))
+        .verifyComplete();
+    }
+}
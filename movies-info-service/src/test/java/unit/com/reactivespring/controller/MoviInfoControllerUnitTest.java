@@ -0,0 +1,380 @@
+package com.reactivespring.controller;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.reactivespring.config.DeadlineWebFilter;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoChangeStream;
+import com.reactivespring.service.MovieInfoService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@WebFluxTest(controllers = MoviInfoController.class)
+@AutoConfigureWebTestClient
+public class MoviInfoControllerUnitTest {
+    
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private MovieInfoService service;
+
+    @MockBean
+    private MovieInfoChangeStream changeStream;
+
+    private static String MOVIES_URL = "/v1/movieInfos";
+
+    @Test
+    void testGetAllMovies(){
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(service.getPage(null, null, 101, Set.of())).thenReturn(Flux.fromIterable(movieinfos));
+        webTestClient.get().uri(MOVIES_URL).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBodyList(MovieInfo.class)
+        .hasSize(3);
+    }
+
+    @Test
+    void testGetAllMovies_nextPage(){
+        var movieinfos = List.of(new MovieInfo("a", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("b", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("c", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        //limit + 1 films demandes : il reste une page
+        when(service.getPage(null, null, 3, Set.of())).thenReturn(Flux.fromIterable(movieinfos));
+        webTestClient.get().uri(MOVIES_URL+"?limit=2").exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectHeader().valueEquals(HttpHeaders.LINK, "</v1/movieInfos?after=b&limit=2>; rel=\"next\"")
+        .expectBodyList(MovieInfo.class)
+        .hasSize(2);
+    }
+
+    @Test
+    void testGetAllMovies_ndjson(){
+        var movieinfos = List.of(new MovieInfo("a", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("b", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+
+        //en flux : pas de limite par defaut, pas de header Link
+        when(service.streamPage(null, "abc", 0, 100, Set.of())).thenReturn(Flux.fromIterable(movieinfos));
+        webTestClient.get().uri(MOVIES_URL+"?after=abc").accept(MediaType.APPLICATION_NDJSON).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+        .expectHeader().doesNotExist(HttpHeaders.LINK)
+        .expectBodyList(MovieInfo.class)
+        .hasSize(2);
+    }
+
+    @Test
+    void testGetAllMovies_fields(){
+        var movieinfos = List.of(new MovieInfo("a", "Batman Begins", 2005, null, null),
+                new MovieInfo("b", "The Dark Knight", 2008, null, null));
+
+        //la projection suit la page suivante, les champs non demandes sont absents du JSON
+        when(service.getPage(2005, null, 2, Set.of("name", "year"))).thenReturn(Flux.fromIterable(movieinfos));
+        webTestClient.get().uri(MOVIES_URL+"?year=2005&limit=1&fields=name,year").exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectHeader().valueEquals(HttpHeaders.LINK,
+            "</v1/movieInfos?year=2005&fields=name,year&after=a&limit=1>; rel=\"next\"")
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].name").isEqualTo("Batman Begins")
+        .jsonPath("$[0].cast").doesNotExist()
+        .jsonPath("$[0].releaseDate").doesNotExist();
+    }
+
+    @Test
+    void testGetAllMovies_invalidFields(){
+        webTestClient.get().uri(MOVIES_URL+"?fields=name,budget").exchange()
+        .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testGetAllMovies_invalidLimit(){
+        webTestClient.get().uri(MOVIES_URL+"?limit=0").exchange()
+        .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testGetStream_sse(){
+        var movie = new MovieInfo("abc", "Dark Knight Rises",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(changeStream.events("82a1")).thenReturn(Flux.just(
+            new MovieInfoEvent("82a2", MovieInfoEvent.Type.UPDATE, "abc", movie),
+            new MovieInfoEvent("82a3", MovieInfoEvent.Type.DELETE, "abc", null)));
+
+        //reprise apres le dernier evenement recu par le client SSE
+        var events = webTestClient.get().uri(MOVIES_URL+"/stream")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .header("Last-Event-ID", "82a1").exchange()
+        .expectStatus().isAccepted()
+        .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfoEvent>>() {})
+        .getResponseBody();
+        StepVerifier.create(events)
+        .assertNext(event -> {
+            assertEquals("82a2", event.id());
+            assertEquals("update", event.event());
+            assertEquals("Dark Knight Rises", event.data().getMovieInfo().getName());
+        })
+        .assertNext(event -> {
+            assertEquals("delete", event.event());
+            assertNull(event.data().getMovieInfo());
+        })
+        .verifyComplete();
+    }
+
+    @Test
+    void testGetMovieById(){
+        var movie = new MovieInfo("abc", "Dark Knight Rises",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        var id = "abc";
+        when(service.getById(id, Set.of())).thenReturn(Mono.just(movie));
+        webTestClient.get().uri(MOVIES_URL+"/{id}", id).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises");
+    }
+
+    @Test
+    void testGetMovieById_notModified(){
+        var movie = new MovieInfo("abc", "Dark Knight Rises",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movie.setVersion(3L);
+        var id = "abc";
+        when(service.getById(id, Set.of())).thenReturn(Mono.just(movie));
+        //l'ETag est la version du document
+        var etag = webTestClient.get().uri(MOVIES_URL+"/{id}", id).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+        .returnResult(MovieInfo.class)
+        .getResponseHeaders().getETag();
+
+        //meme contenu : 304 sans body, avec le meme ETag
+        webTestClient.get().uri(MOVIES_URL+"/{id}", id)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+        .expectBody().isEmpty();
+
+        //autre ETag : le film est renvoye
+        webTestClient.get().uri(MOVIES_URL+"/{id}", id)
+        .header(HttpHeaders.IF_NONE_MATCH, "\"other\"")
+        .exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises");
+    }
+
+    @Test
+    void testGetMovieById_withoutVersion(){
+        //document insere avant la version : pas d'ETag, donc jamais de 304
+        var movie = new MovieInfo("abc", "Dark Knight Rises",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(service.getById("abc", Set.of())).thenReturn(Mono.just(movie));
+        webTestClient.get().uri(MOVIES_URL+"/{id}", "abc")
+        .header(HttpHeaders.IF_NONE_MATCH, "*")
+        .exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectHeader().doesNotExist(HttpHeaders.ETAG)
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises");
+    }
+
+    @Test
+    void testGetMovieById_deadlineExhausted(){
+        //plus de temps restant : 504 sans appeler le service
+        webTestClient.get().uri(MOVIES_URL+"/{id}", "abc")
+        .header(DeadlineWebFilter.HEADER, "0")
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        verify(service, never()).getById(any(), any());
+    }
+
+    @Test
+    void testGetMovieById_deadlineExceeded(){
+        var movie = new MovieInfo("abc", "Dark Knight Rises",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(service.getById("abc", Set.of())).thenReturn(Mono.just(movie).delayElement(Duration.ofSeconds(1)));
+        webTestClient.get().uri(MOVIES_URL+"/{id}", "abc")
+        .header(DeadlineWebFilter.HEADER, "100")
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void testGetMovieById_fields(){
+        var id = "abc";
+        when(service.getById(id, Set.of("name"))).thenReturn(Mono.just(new MovieInfo(id, "Dark Knight Rises", null, null, null)));
+        webTestClient.get().uri(MOVIES_URL+"/{id}?fields=name", id).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody()
+        .jsonPath("$.movieInfoId").isEqualTo(id)
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+        .jsonPath("$.year").doesNotExist();
+    }
+
+    @Test
+    void testAddMovieInfo() {
+        var newMovie = new MovieInfo(null, "Batman Begins 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        when(service.addMovieInfo(isA(MovieInfo.class))).thenReturn(Mono.just(new MovieInfo("mockId", "Batman Begins 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"))));
+
+        webTestClient.post().uri(MOVIES_URL)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().isCreated()
+        .expectBody(MovieInfo.class)
+        .consumeWith(m -> {
+            var saved = m.getResponseBody();
+            assertAll(()-> assertNotNull(saved.getMovieInfoId()),
+            ()-> assertEquals(saved.getMovieInfoId(), "mockId"));
+            
+        });
+    }
+
+    @Test
+    void testUpdateMovieInfo() {
+        var id = "abc";
+        var newMovie = new MovieInfo(null, "Dark Knight Rises",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        when(service.updateMovie(isA(String.class), isA(MovieInfo.class)))
+        .thenReturn(Mono.just(new MovieInfo(id, "Dark Knight Rises 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"))));
+
+        webTestClient.put().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().is2xxSuccessful()
+        .expectBody(MovieInfo.class)
+        .consumeWith(m -> {
+            var saved = m.getResponseBody();
+            assertNotNull(saved);
+            assertEquals("Dark Knight Rises 1", saved.getName());
+        });
+    }
+
+    @Test
+    void testPatchMovieInfo() {
+        var id = "abc";
+        var patch = new MovieInfo();
+        patch.setName("Dark Knight Rises 2");
+        when(service.patchMovie(isA(String.class), isA(MovieInfo.class)))
+        .thenReturn(Mono.just(new MovieInfo(id, "Dark Knight Rises 2",
+        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L)));
+
+        webTestClient.patch().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(patch).exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Dark Knight Rises 2")
+        .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    void testPatchMovieInfo_conflict() {
+        var id = "abc";
+        var patch = new MovieInfo();
+        patch.setYear(2013);
+        patch.setVersion(3L);
+        when(service.patchMovie(isA(String.class), isA(MovieInfo.class)))
+        .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.CONFLICT)));
+
+        webTestClient.patch().uri(MOVIES_URL+"/{id}", id)
+        .bodyValue(patch).exchange()
+        .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void testDeleteMovieInfo() {
+        var id = "abc"; 
+        when(service.deleteMoviebyId(id)).thenReturn(Mono.empty());
+        webTestClient.delete().uri(MOVIES_URL+"/{id}", id)
+        .exchange()
+        .expectStatus().isNoContent();
+    }
+
+    @Test
+    void testAddMovieInfoValidation() {
+        var newMovie = new MovieInfo(null, "",
+        -5, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        when(service.addMovieInfo(isA(MovieInfo.class))).thenReturn(Mono.just(new MovieInfo("mockId", "Batman Begins 1",
+        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"))));
+
+        webTestClient.post().uri(MOVIES_URL)
+        .bodyValue(newMovie).exchange()
+        .expectStatus().isBadRequest()
+        .expectBody(String.class)
+        .consumeWith(m -> {
+            var str = m.getResponseBody();
+            assertAll(()-> assertNotNull(str),
+            ()-> assertEquals(str, "Name must be present,Year must be a positive value"));
+            
+        });
+    }
+
+    @Test
+    void testBulkAddMovieInfos() {
+        //le service recoit le corps decoupe en lignes
+        when(service.bulkAddMovieInfos(any())).thenAnswer(invocation -> {
+            Flux<String> lines = invocation.getArgument(0);
+            return lines.index((index, line) -> MovieInfoBulkResult.created(index + 1, line));
+        });
+
+        webTestClient.post().uri(MOVIES_URL+"/bulk")
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .bodyValue("{\"name\":\"a\"}\n{\"name\":\"b\"}\n")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .expectBodyList(MovieInfoBulkResult.class)
+        .consumeWith(m -> {
+            var results = m.getResponseBody();
+            assertEquals(2, results.size());
+            assertEquals("{\"name\":\"b\"}", results.get(1).getMovieInfoId());
+            assertEquals(2, results.get(1).getLine());
+        });
+    }
+}
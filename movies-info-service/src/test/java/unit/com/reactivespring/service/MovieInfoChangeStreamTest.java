@@ -0,0 +1,126 @@
+package com.reactivespring.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+//curseur Mongo simule : on controle ce que renvoie chaque ouverture du change stream
+public class MovieInfoChangeStreamTest {
+
+    private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+    private final MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+    private MovieInfoChangeStream changeStream;
+
+    @BeforeEach
+    void setUp() {
+        when(template.getCollectionName(MovieInfo.class)).thenReturn("movieInfo");
+        changeStream = new MovieInfoChangeStream(template, 10, Duration.ofMillis(1), Duration.ofMillis(10));
+    }
+
+    @Test
+    void liveStreamReopensFromNowWhenResumeFails() {
+        opens(Flux.just(deleted("a1", "abc")).concatWith(Flux.error(resumeFailure(286))))
+            .thenReturn(Flux.just(deleted("a2", "def")).concatWith(Flux.never()));
+
+        StepVerifier.create(changeStream.events(null).map(MovieInfoEvent::getMovieInfoId))
+            .expectNext("abc", "def")
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        //la reprise apres "a1" est impossible : le curseur est rouvert sans resume token
+        assertEquals(Optional.empty(), openedWith().get(1).getResumeToken());
+    }
+
+    @Test
+    void liveStreamReopensWhenCursorCloses() {
+        //invalidate : le curseur se ferme, le flux partage ne doit pas se terminer
+        opens(Flux.just(deleted("a1", "abc")))
+            .thenReturn(Flux.just(deleted("a2", "def")).concatWith(Flux.never()));
+
+        StepVerifier.create(changeStream.events(null).map(MovieInfoEvent::getMovieInfoId))
+            .expectNext("abc", "def")
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertEquals(Optional.empty(), openedWith().get(1).getResumeToken());
+        //un nouveau client recoit le replay, pas une fin rejouee
+        StepVerifier.create(changeStream.events(null).map(MovieInfoEvent::getMovieInfoId))
+            .expectNext("abc", "def")
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void explicitResumeFailureIsGone() {
+        opens(Flux.error(resumeFailure(286)));
+
+        StepVerifier.create(changeStream.events("8263"))
+            .expectErrorSatisfies(ex -> {
+                assertTrue(ex instanceof ResponseStatusException);
+                assertEquals(HttpStatus.GONE, ((ResponseStatusException) ex).getStatus());
+            })
+            .verify(Duration.ofSeconds(5));
+    }
+
+    //curseurs suivants : thenReturn enchaine sur le resultat
+    private OngoingStubbing<Flux<ChangeStreamEvent<MovieInfo>>> opens(Flux<ChangeStreamEvent<MovieInfo>> first) {
+        return when(template.changeStream(anyString(), any(ChangeStreamOptions.class), eq(MovieInfo.class)))
+            .thenReturn(first);
+    }
+
+    private List<ChangeStreamOptions> openedWith() {
+        var options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(template, times(2)).changeStream(anyString(), options.capture(), eq(MovieInfo.class));
+        return options.getAllValues();
+    }
+
+    private ChangeStreamEvent<MovieInfo> deleted(String resumeToken, String movieInfoId) {
+        var raw = new ChangeStreamDocument<Document>(OperationType.DELETE,
+            new BsonDocument("_data", new BsonString(resumeToken)), null, null, null,
+            new BsonDocument("_id", new BsonString(movieInfoId)), null, null, null, null);
+        return new ChangeStreamEvent<>(raw, MovieInfo.class, converter);
+    }
+
+    private static MongoCommandException resumeFailure(int code) {
+        return new MongoCommandException(
+            BsonDocument.parse("{ ok: 0, code: " + code + ", errmsg: 'resume point may no longer be in the oplog' }"),
+            new ServerAddress());
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.reactivespring.handler.ReviewHandler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//nombre d'abonnes au flux /v1/reviews/stream
+@Configuration
+public class StreamMetricsConfig {
+
+    //resolu a la lecture de la jauge : ReviewHandler -> Mongo -> metriques Mongo -> MeterRegistry formerait un cycle
+    @Bean
+    public MeterBinder reviewStreamMetrics(ObjectProvider<ReviewHandler> handler) {
+        return registry -> Gauge.builder("reviews.stream.subscribers", handler,
+                provider -> provider.getObject().streamSubscriberCount())
+            .description("Current subscribers of the review sink")
+            .register(registry);
+    }
+}
@@ -1,18 +1,25 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import java.time.Instant;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+//findReviewsByMovieInfoId (tri par note decroissante avec limit), findReviewsByMovieInfoIdIn et summarizeByMovieInfoId
+@CompoundIndex(name = "movieInfoId_rating", def = "{ 'movieInfoId': 1, 'rating': -1 }")
 public class Review {
 
     @Id
@@ -22,4 +29,12 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "rating.negative : rating is negative and please pass a non-negative value")
     private Double rating;
+    //pose par ReviewHandler a la creation et a la modification : entre dans l'ETag des reviews d'un film
+    //(absent des reviews ecrites avant son introduction)
+    @JsonIgnore
+    private Instant lastModified;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
@@ -0,0 +1,21 @@
+package com.reactivespring.domain;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//resume des reviews d'un film, calcule par Mongo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    //null si le film n'a aucune review notee
+    private Double averageRating;
+    //nombre de reviews par note arrondie a l'entier inferieur
+    private Map<Integer, Long> distribution;
+}
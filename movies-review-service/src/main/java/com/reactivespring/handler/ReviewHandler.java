@@ -3,8 +3,12 @@ package com.reactivespring.handler;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.time.Instant;
+import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -28,6 +32,8 @@ import com.reactivespring.exception.ReviewNotFoundException;
 @Component
 public class ReviewHandler {
 
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
     private final ReviewReactiverepository repository;
 
     private final Validator validator;
@@ -50,6 +56,7 @@ public class ReviewHandler {
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)// extract req
         .doOnNext(this::validate)
+                .doOnNext(review -> review.setLastModified(Instant.now()))
                 .flatMap(repository::save)// save review
                 .doOnNext(review -> reviewSink.tryEmitNext(review))
                 .flatMap(savedReview -> {
@@ -60,18 +67,78 @@ public class ReviewHandler {
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
-        if (movieInfoId.isPresent()){
-            var reviewsFlux = repository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
-            return buildReviewsresponse(reviewsFlux);
+        var movieInfoIds = request.queryParams().getOrDefault("movieInfoId", List.of());
+        var limit = request.queryParam("limit");
+        if (movieInfoIds.size() == 1 && limit.isPresent()){
+            //top N des reviews d'un film, les mieux notees d'abord
+            var page = PageRequest.of(0, parseLimit(limit.get()), Sort.by(Sort.Direction.DESC, "rating"));
+            var reviewsFlux = repository.findReviewsByMovieInfoId(Long.valueOf(movieInfoIds.get(0)), page);
+            return buildReviewsresponse(request, reviewsFlux);
+        }else if (movieInfoIds.size() == 1){
+            var movieInfoId = Long.valueOf(movieInfoIds.get(0));
+            if (request.headers().accept().contains(MediaType.APPLICATION_NDJSON)) {
+                return buildReviewsresponse(request, repository.findReviewsByMovieInfoId(movieInfoId));
+            }
+            return buildTaggedReviewsresponse(request, movieInfoId);
+        }else if (movieInfoIds.size() > 1){
+            //plusieurs films en une seule requete (batch de movies-service)
+            var ids = movieInfoIds.stream().map(Long::valueOf).collect(Collectors.toSet());
+            var reviewsFlux = repository.findReviewsByMovieInfoIdIn(ids);
+            return buildReviewsresponse(request, reviewsFlux);
         }else {
             var reviewsFlux = repository.findAll();
-            return buildReviewsresponse(reviewsFlux);
+            return buildReviewsresponse(request, reviewsFlux);
+        }
+    }
+
+    //400 (et non 500) pour un limit non numerique ou inferieur a 1
+    private static int parseLimit(String limit) {
+        try {
+            var value = Integer.parseInt(limit.trim());
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            //meme reponse que pour une valeur negative
         }
+        throw new ReviewDataException("limit must be a positive integer but was " + limit);
     }
 
-    private Mono<ServerResponse> buildReviewsresponse(Flux<Review> reviewsFlux) {
-        return ServerResponse.ok().body(reviewsFlux, Review.class);
+    //GET /v1/reviews/summary?movieInfoId=1 : nombre, moyenne et distribution des notes
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId")
+            .orElseThrow(() -> new ReviewDataException("movieInfoId must be present"));
+        return repository.summarizeByMovieInfoId(Long.valueOf(movieInfoId))
+            .flatMap(summary -> ServerResponse.ok().contentType(contentType(request)).bodyValue(summary));
+    }
+
+    //Smile (JSON binaire) pour movies-service, JSON par defaut
+    private static MediaType contentType(ServerRequest request) {
+        return request.headers().accept().contains(APPLICATION_SMILE) ? APPLICATION_SMILE : MediaType.APPLICATION_JSON;
+    }
+
+    //reviews d'un film avec un ETag tire de leur version (voir versionByMovieInfoId) :
+    //304 sans body si l'appelant a deja cette version (If-None-Match), sinon meme reponse que sans ETag
+    //(aucune lecture des reviews pour calculer l'ETag)
+    //la version est lue avant les reviews : une ecriture entre les deux donne un ETag en retard, jamais un body perime
+    private Mono<ServerResponse> buildTaggedReviewsresponse(ServerRequest request, Long movieInfoId) {
+        return repository.versionByMovieInfoId(movieInfoId)
+            .flatMap(version -> {
+                var etag = "\"" + version + "\"";
+                return request.checkNotModified(etag)
+                    .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                        .contentType(contentType(request))
+                        .eTag(etag)
+                        .body(repository.findReviewsByMovieInfoId(movieInfoId), Review.class)));
+            });
+    }
+
+    //en NDJSON si l'appelant le demande : chaque review est ecrite des qu'elle sort de Mongo
+    private Mono<ServerResponse> buildReviewsresponse(ServerRequest request, Flux<Review> reviewsFlux) {
+        if (request.headers().accept().contains(MediaType.APPLICATION_NDJSON)) {
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(reviewsFlux, Review.class);
+        }
+        return ServerResponse.ok().contentType(contentType(request)).body(reviewsFlux, Review.class);
     }
 
     public Mono<ServerResponse> updateReview(ServerRequest request) {
@@ -83,6 +150,7 @@ public class ReviewHandler {
                 .map(reqreview -> {
                     review.setComment(reqreview.getComment());
                     review.setRating(reqreview.getRating());
+                    review.setLastModified(Instant.now());
                     return review;
                 })
                 .flatMap(repository::save)
@@ -99,7 +167,12 @@ public class ReviewHandler {
 
     public Mono<ServerResponse> getReviewStream(ServerRequest request) {
         return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
-        .body(reviewSink.asFlux(), Review.class).log();
+        .body(reviewSink.asFlux(), Review.class);
+    }
+
+    //expose pour la jauge reviews.stream.subscribers
+    public int streamSubscriberCount() {
+        return reviewSink.currentSubscriberCount();
     }
 
 }
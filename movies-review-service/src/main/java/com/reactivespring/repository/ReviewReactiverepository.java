@@ -1,11 +1,16 @@
 package com.reactivespring.repository;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.reactivespring.domain.Review;
 
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiverepository extends ReactiveMongoRepository<Review, String> {
+public interface ReviewReactiverepository extends ReactiveMongoRepository<Review, String>, ReviewSummaryRepository {
     Flux<Review> findReviewsByMovieInfoId(Long movieinfouid);
+    Flux<Review> findReviewsByMovieInfoId(Long movieinfouid, Pageable pageable);
+    Flux<Review> findReviewsByMovieInfoIdIn(Collection<Long> movieinfouids);
 }
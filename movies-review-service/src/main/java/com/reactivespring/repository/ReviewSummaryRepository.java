@@ -0,0 +1,13 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.ReviewSummary;
+
+import reactor.core.publisher.Mono;
+
+//requetes d'agregation (fragment de ReviewReactiverepository)
+public interface ReviewSummaryRepository {
+    Mono<ReviewSummary> summarizeByMovieInfoId(Long movieInfoId);
+
+    //version des reviews d'un film : change a chaque creation, modification ou suppression
+    Mono<String> versionByMovieInfoId(Long movieInfoId);
+}
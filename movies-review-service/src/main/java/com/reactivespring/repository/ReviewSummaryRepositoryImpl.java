@@ -0,0 +1,76 @@
+package com.reactivespring.repository;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+
+import java.time.Instant;
+import java.util.TreeMap;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReviewSummaryRepositoryImpl implements ReviewSummaryRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    //Mongo regroupe par note entiere : au plus une ligne par note revient au service, jamais les reviews
+    @Override
+    public Mono<ReviewSummary> summarizeByMovieInfoId(Long movieInfoId) {
+        var aggregation = newAggregation(Review.class,
+            match(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null)),
+            project("rating").and(ArithmeticOperators.Floor.floorValueOf("rating")).as("bucket"),
+            group("bucket").count().as("count").sum("rating").as("total"));
+        return template.aggregate(aggregation, RatingBucket.class)
+            .collectList()
+            .map(buckets -> {
+                var distribution = new TreeMap<Integer, Long>();
+                long count = 0;
+                double total = 0;
+                for (var bucket : buckets) {
+                    distribution.put(bucket.getBucket().intValue(), bucket.getCount());
+                    count += bucket.getCount();
+                    total += bucket.getTotal();
+                }
+                return new ReviewSummary(movieInfoId, count, count == 0 ? null : total / count, distribution);
+            });
+    }
+
+    //nombre de reviews et derniere modification, calcules par Mongo : les reviews ne quittent pas la base
+    @Override
+    public Mono<String> versionByMovieInfoId(Long movieInfoId) {
+        var aggregation = newAggregation(Review.class,
+            match(Criteria.where("movieInfoId").is(movieInfoId)),
+            group().count().as("count").max("lastModified").as("lastModified"));
+        return template.aggregate(aggregation, ReviewsVersion.class)
+            .next()
+            .map(version -> version.getCount() + "-"
+                + (version.getLastModified() == null ? 0 : version.getLastModified().toEpochMilli()))
+            .defaultIfEmpty("0-0");
+    }
+
+    @Data
+    static class ReviewsVersion {
+        private long count;
+        private Instant lastModified;
+    }
+
+    @Data
+    static class RatingBucket {
+        @Id
+        private Double bucket;
+        private long count;
+        private double total;
+    }
+}
@@ -19,6 +19,7 @@ public class ReviewRouter {
         .nest(path("/v1/reviews"), builder -> {
             builder.POST("", request -> handler.addReview(request))
                 .GET("", request -> handler.getReviews(request))
+                .GET("/summary", request -> handler.getReviewSummary(request))
                 .PUT("/{id}", request -> handler.updateReview(request))
                 .DELETE("/{id}", request -> handler.deleteReview(request))
                 .GET("/stream", request -> handler.getReviewStream(request));
@@ -0,0 +1,65 @@
+package com.reactivespring.warmup;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.repository.ReviewReactiverepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//lectures de ReviewReactiverepository servies avec des donnees fixes pendant le warm-up
+@Component
+public class WarmUpRepositoryStandIn extends AbstractWarmUpRepositoryStandIn<ReviewReactiverepository> {
+
+    private static final int REVIEWS = 20;
+
+    public WarmUpRepositoryStandIn(@Value("${warmup.enabled:false}") boolean enabled, ObjectProvider<WarmUp> warmUp) {
+        super(ReviewReactiverepository.class, enabled, warmUp);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object invokeDuringWarmUp(MethodInvocation invocation) throws Throwable {
+        var arguments = invocation.getArguments();
+        switch (invocation.getMethod().getName()) {
+            case "findReviewsByMovieInfoId": {
+                var movieInfoId = (Long) arguments[0];
+                var limit = arguments.length > 1 ? ((Pageable) arguments[1]).getPageSize() : REVIEWS;
+                return standIn((Flux<Review>) invocation.proceed(), reviews(movieInfoId).take(limit));
+            }
+            case "findReviewsByMovieInfoIdIn": {
+                var movieInfoIds = (Collection<?>) arguments[0];
+                return standIn((Flux<Review>) invocation.proceed(),
+                    Flux.fromIterable(movieInfoIds).concatMap(movieInfoId -> reviews((Long) movieInfoId)));
+            }
+            case "findAll":
+                if (arguments.length == 0) {
+                    return standIn((Flux<Review>) invocation.proceed(), reviews(1L));
+                }
+                return invocation.proceed();
+            case "summarizeByMovieInfoId":
+                return standIn((Mono<ReviewSummary>) invocation.proceed(),
+                    Mono.just(new ReviewSummary((Long) arguments[0], REVIEWS, 4.5, Map.of(4, 10L, 5, 10L))));
+            //ETag des reviews d'un film
+            case "versionByMovieInfoId":
+                return standIn((Mono<String>) invocation.proceed(), Mono.just(REVIEWS + "-0"));
+            default:
+                return invocation.proceed();
+        }
+    }
+
+    private static Flux<Review> reviews(Long movieInfoId) {
+        return Flux.range(0, REVIEWS)
+            .map(i -> new Review("warmup-" + i, movieInfoId, "Awesome Movie, great cast and a memorable score",
+                4.0 + i % 2));
+    }
+}
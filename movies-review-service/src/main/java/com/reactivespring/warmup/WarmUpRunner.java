@@ -0,0 +1,27 @@
+package com.reactivespring.warmup;
+
+import java.util.List;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.repository.ReviewReactiverepository;
+
+//reviews des films chauds lues dans Mongo (connexions du pool ouvertes et index en cache cote serveur),
+//puis requetes synthetiques en JSON et en Smile servies par WarmUpRepositoryStandIn
+@Component
+public class WarmUpRunner extends AbstractWarmUpRunner {
+
+    private static final List<String> URIS = List.of(
+        "/v1/reviews?movieInfoId=1",
+        "/v1/reviews?movieInfoId=1&limit=10",
+        "/v1/reviews?movieInfoId=1&movieInfoId=2",
+        "/v1/reviews/summary?movieInfoId=1",
+        "/v1/reviews");
+
+    public WarmUpRunner(WarmUpProperties properties, WarmUp warmUp, WebServerApplicationContext context,
+            ReviewReactiverepository repository) {
+        super(properties, warmUp, context, URIS, JSON_AND_SMILE,
+            movieInfoId -> repository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId)).count());
+    }
+}
@@ -1,6 +1,7 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -162,4 +163,79 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("/v1/reviews")
+                            .queryParam("movieInfoId", "1", "2")
+                            .build();
+                })
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .value(reviewList -> {
+                    assertEquals(3, reviewList.size());
+                });
+
+    }
+
+    @Test
+    void getReviewSummary() {
+        //given
+        repository.save(new Review(null, 1L, "Good Movie", 7.5)).block();
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(3, summary.getCount());
+                    assertEquals(8.5, summary.getAverageRating());
+                    assertEquals(2L, summary.getDistribution().get(9));
+                    assertEquals(1L, summary.getDistribution().get(7));
+                });
+    }
+
+    @Test
+    void getReviewsByMovieInfoId_etagChangesOnUpdate() {
+        //given
+        var etag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+        var review = repository.findReviewsByMovieInfoId(1L).blockFirst();
+        review.setComment("Not so awesome");
+        //when : meme nombre de reviews, seul le commentaire change
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", review.getReviewId())
+                .bodyValue(review)
+                .exchange()
+                .expectStatus().isOk();
+        //then
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
 }
@@ -4,20 +4,32 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import com.reactivespring.config.DeadlineWebFilter;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.handler.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.repository.ReviewReactiverepository;
@@ -27,7 +39,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @WebFluxTest
-@ContextConfiguration(classes = { ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class })
+@ContextConfiguration(classes = { ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class,
+        DeadlineWebFilter.class })
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
 
@@ -51,7 +64,8 @@ public class ReviewsUnitTest {
     void addReview() {
         // given
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
-        when(repository.save(review))
+        //le handler pose lastModified avant l'enregistrement
+        when(repository.save(isA(Review.class)))
                 .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
         // when
         webTestClient
@@ -143,4 +157,184 @@ public class ReviewsUnitTest {
                 .exchange()
                 .expectStatus().isNoContent();
     }
+
+    @Test
+    void testGetReviewsByMovieInfoIds() {
+        //given
+        when(repository.findReviewsByMovieInfoIdIn(Set.of(1L, 2L)))
+                .thenReturn(Flux.fromIterable(list));
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoId", "1", "2")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(3, reviews.size());
+                });
+    }
+
+    @Test
+    void testGetReviews_deadlineExceeded() {
+        //given
+        when(repository.versionByMovieInfoId(1L)).thenReturn(Mono.just("2-0"));
+        when(repository.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.fromIterable(list).delayElements(Duration.ofSeconds(1)));
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoId", "1")
+                        .build())
+                .header(DeadlineWebFilter.HEADER, "200")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void testGetReviews_topN() {
+        //given
+        var page = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "rating"));
+        when(repository.findReviewsByMovieInfoId(1L, page))
+                .thenReturn(Flux.fromIterable(list.subList(0, 2)));
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoId", "1")
+                        .queryParam("limit", "2")
+                        .build())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(2, reviews.size());
+                });
+    }
+
+    @Test
+    void testGetReviews_invalidLimit() {
+        for (var limit : List.of("0", "-1", "abc")) {
+            webTestClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                            .queryParam("movieInfoId", "1")
+                            .queryParam("limit", limit)
+                            .build())
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
+    }
+
+    @Test
+    void testGetReviews_smile() {
+        //given
+        when(repository.versionByMovieInfoId(1L)).thenReturn(Mono.just("2-0"));
+        when(repository.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.fromIterable(list.subList(0, 2)));
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoId", "1")
+                        .build())
+                .accept(ReviewHandler.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentTypeCompatibleWith(ReviewHandler.APPLICATION_SMILE)
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(2, reviews.size());
+                    assertEquals("Awesome Movie", reviews.get(0).getComment());
+                });
+    }
+
+    @Test
+    void testGetReviewSummary() {
+        //given
+        when(repository.summarizeByMovieInfoId(1L))
+                .thenReturn(Mono.just(new ReviewSummary(1L, 2, 9.0, Map.of(9, 2L))));
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(2, summary.getCount());
+                    assertEquals(9.0, summary.getAverageRating());
+                    assertEquals(2L, summary.getDistribution().get(9));
+                });
+    }
+
+    @Test
+    void testGetReviewSummary_missingMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void testGetReviews_notModified() {
+        //given
+        when(repository.versionByMovieInfoId(1L)).thenReturn(Mono.just("2-1697640000000"));
+        when(repository.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.fromIterable(list.subList(0, 2)));
+        var etag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+        //l'ETag ne depend que de la version : les reviews ne sont pas lues pour un 304
+        verify(repository, times(1)).findReviewsByMovieInfoId(1L);
+    }
+
+    @Test
+    void testGetReviews_modifiedSinceETag() {
+        //given
+        when(repository.versionByMovieInfoId(1L)).thenReturn(Mono.just("3-1697640000000"));
+        when(repository.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.fromIterable(list.subList(0, 2)));
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .ifNoneMatch("\"2-1697640000000\"")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-1697640000000\"")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
 }
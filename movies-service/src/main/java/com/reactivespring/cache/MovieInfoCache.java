@@ -0,0 +1,161 @@
+package com.reactivespring.cache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.utils.Deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+//cache local non bloquant des MovieInfo (Caffeine = W-TinyLFU)
+//les 404 sont gardes peu de temps (negative caching), les erreurs serveur ne sont jamais gardees
+@Slf4j
+@Component
+public class MovieInfoCache {
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final boolean staleWhileRevalidate;
+    private final Duration maxStale;
+    private final AsyncCache<String, CachedMovieInfo> cache;
+
+    public MovieInfoCache(@Value("${restClient.moviesInfoCache.enabled:false}") boolean enabled,
+            @Value("${restClient.moviesInfoCache.maximumSize:10000}") long maximumSize,
+            @Value("${restClient.moviesInfoCache.ttl:5m}") Duration ttl,
+            @Value("${restClient.moviesInfoCache.negativeTtl:30s}") Duration negativeTtl,
+            @Value("${restClient.moviesInfoCache.staleWhileRevalidate:false}") boolean staleWhileRevalidate,
+            @Value("${restClient.moviesInfoCache.maxStale:1h}") Duration maxStale,
+            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.maxStale = maxStale;
+        this.cache = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new CachedMovieInfoExpiry())
+                .recordStats()
+                .buildAsync(), "movieInfo");
+    }
+
+    public Mono<MovieInfo> get(String movieId, Function<String, Mono<MovieInfo>> loader) {
+        if (!enabled) {
+            return loader.apply(movieId);
+        }
+        //thenApply : annuler un appelant ne doit pas annuler le chargement partage dans le cache
+        //le chargement garde le Context de l'appelant sauf sa deadline : chaque appelant attend selon la sienne
+        return Deadline.bound(Mono.deferContextual(context -> Mono.fromFuture(
+                cache.get(movieId, (id, executor) -> load(id, loader, Deadline.detach(Context.of(context))))
+                    .thenApply(Function.identity()))))
+            .flatMap(cached -> {
+                if (staleWhileRevalidate && cached.isStale(ttl)) {
+                    refresh(movieId, loader);
+                }
+                return cached.toMono();
+            });
+    }
+
+    public void invalidate(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+
+    //on sert la valeur perimee et on la recharge en tache de fond
+    //hors requete : pas de deadline
+    private void refresh(String movieId, Function<String, Mono<MovieInfo>> loader) {
+        load(movieId, loader, Context.empty()).whenComplete((cached, ex) -> {
+            if (ex != null) {
+                log.warn("Background refresh of movie {} failed, keeping stale value : {}", movieId, ex.getMessage());
+                return;
+            }
+            cache.synchronous().put(movieId, cached);
+        });
+    }
+
+    private CompletableFuture<CachedMovieInfo> load(String movieId, Function<String, Mono<MovieInfo>> loader,
+            ContextView context) {
+        return loader.apply(movieId)
+            .map(CachedMovieInfo::found)
+            .onErrorResume(MovieInfoCache::isNotFound,
+                ex -> Mono.just(CachedMovieInfo.notFound(ex.getMessage())))
+            .contextWrite(context)
+            .toFuture();
+    }
+
+    private static boolean isNotFound(Throwable ex) {
+        return ex instanceof MoviesInfoClientException
+            && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.NOT_FOUND.value();
+    }
+
+    private static class CachedMovieInfo {
+
+        private final MovieInfo movieInfo;
+        private final String notFoundMessage;
+        private final long loadedAt = System.nanoTime();
+
+        private CachedMovieInfo(MovieInfo movieInfo, String notFoundMessage) {
+            this.movieInfo = movieInfo;
+            this.notFoundMessage = notFoundMessage;
+        }
+
+        static CachedMovieInfo found(MovieInfo movieInfo) {
+            return new CachedMovieInfo(movieInfo, null);
+        }
+
+        static CachedMovieInfo notFound(String message) {
+            return new CachedMovieInfo(null, message);
+        }
+
+        boolean isNotFound() {
+            return movieInfo == null;
+        }
+
+        boolean isStale(Duration ttl) {
+            return !isNotFound() && System.nanoTime() - loadedAt > ttl.toNanos();
+        }
+
+        Mono<MovieInfo> toMono() {
+            if (isNotFound()) {
+                return Mono.error(new MoviesInfoClientException(notFoundMessage, HttpStatus.NOT_FOUND.value()));
+            }
+            return Mono.just(movieInfo);
+        }
+    }
+
+    //duree de vie par entree : ttl (+ maxStale en stale-while-revalidate) ou negativeTtl pour les 404
+    private class CachedMovieInfoExpiry implements Expiry<String, CachedMovieInfo> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedMovieInfo value, long currentTime) {
+            if (value.isNotFound()) {
+                return negativeTtl.toNanos();
+            }
+            return staleWhileRevalidate ? ttl.plus(maxStale).toNanos() : ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedMovieInfo value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedMovieInfo value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
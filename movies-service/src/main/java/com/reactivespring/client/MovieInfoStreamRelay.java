@@ -0,0 +1,86 @@
+package com.reactivespring.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoClientException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+//une seule connexion au flux de movies-info-service, partagee par tous les clients
+//reconnexion automatique avec backoff, reprise apres le dernier evenement recu (resume token)
+@Slf4j
+@Component
+public class MovieInfoStreamRelay {
+
+    public enum Overflow { DROP, LATEST, BUFFER }
+
+    private final Flux<MovieInfo> shared;
+    private final MeterRegistry registry;
+    //id (resume token) du dernier evenement recu : une reconnexion reprend juste apres, ni perte ni doublon
+    private final AtomicReference<String> lastEventId = new AtomicReference<>();
+
+    public MovieInfoStreamRelay(MoviesInfoRestClient moviesInfoRestClient,
+            @Value("${movies.stream.reconnectMinBackoff:1s}") Duration reconnectMinBackoff,
+            @Value("${movies.stream.reconnectMaxBackoff:30s}") Duration reconnectMaxBackoff,
+            @Value("${movies.stream.gracePeriod:5s}") Duration gracePeriod,
+            MeterRegistry registry) {
+        this.registry = registry;
+        this.shared = Flux.defer(() -> moviesInfoRestClient.retrieveMovieInfoEvents(lastEventId.get()))
+            .doOnNext(event -> lastEventId.set(event.getId()))
+            //transientErrors : le backoff repart du minimum des qu'un element est recu
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectMinBackoff)
+                .maxBackoff(reconnectMaxBackoff)
+                .transientErrors(true)
+                //token trop ancien (410) : on repart du flux en direct
+                .doBeforeRetry(signal -> {
+                    if (isGone(signal.failure())) {
+                        lastEventId.set(null);
+                    }
+                    log.warn("Movie info stream lost, reconnecting : {}", signal.failure().getMessage());
+                }))
+            //fin normale du flux upstream : on se reconnecte aussi
+            .repeatWhen(completions -> completions.delayElements(reconnectMinBackoff))
+            //les clients recoivent les MovieInfo crees ou modifies, pas les suppressions
+            //(ni les mises a jour d'un film supprime depuis, sans document)
+            .filter(event -> event.getMovieInfo() != null)
+            .map(MovieInfoEvent::getMovieInfo)
+            //connexion fermee faute de client : la suivante repart du flux en direct
+            .doOnCancel(() -> lastEventId.set(null))
+            //replay(1) : un nouveau client recoit le dernier MovieInfo
+            //refCount : connexion ouverte au premier client, fermee apres gracePeriod sans client
+            .replay(1)
+            .refCount(1, gracePeriod);
+    }
+
+    //chaque client a sa propre politique de debordement : un client lent ne ralentit pas les autres
+    public Flux<MovieInfo> stream(Overflow overflow, int bufferSize) {
+        var dropped = registry.counter("movies.stream.dropped", "overflow", overflow.name().toLowerCase());
+        switch (overflow) {
+            case LATEST:
+                return shared.onBackpressureLatest();
+            case BUFFER:
+                //au-dela de bufferSize elements en attente, le client est deconnecte
+                return shared.onBackpressureBuffer(bufferSize, movieInfo -> dropped.increment(),
+                    BufferOverflowStrategy.ERROR);
+            case DROP:
+            default:
+                return shared.onBackpressureDrop(movieInfo -> dropped.increment());
+        }
+    }
+
+    private static boolean isGone(Throwable ex) {
+        return ex instanceof MoviesInfoClientException
+            && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.GONE.value();
+    }
+}
@@ -2,32 +2,63 @@ package com.reactivespring.client;
 
 
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.utils.Hedger;
+import com.reactivespring.utils.RetryBudget;
 import com.reactivespring.utils.RetryUtils;
+import com.reactivespring.utils.SingleFlight;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class MoviesInfoRestClient {
     
+    @Qualifier("moviesInfoWebClient")
     private final WebClient webClient;
+    @Qualifier("moviesInfoClientProperties")
+    private final RestClientProperties clientProperties;
+    @Qualifier("moviesInfoRetryBudget")
+    private final RetryBudget retryBudget;
+    private final Hedger hedger;
+    private final MovieInfoCache movieInfoCache;
 
     @Value("${restClient.moviesInfoUrl}")
     private String movieInfoUrl;
 
+    //les appels concurrents pour un meme film partagent un seul appel http
+    private final SingleFlight<String, MovieInfo> inFlightMovies = new SingleFlight<>();
+
     public Mono<MovieInfo> retrieveMovie(String movieId) {
+        return movieInfoCache.get(movieId,
+            id -> inFlightMovies.mono(id, () -> hedger.hedge(() -> fetchMovie(id, null)
+                .flatMap(entity -> Mono.justOrEmpty(entity.getBody())))));
+    }
+
+    //GET conditionnel, sans cache : un 304 (body vide) signifie que le MovieInfo a toujours cet ETag
+    public Mono<ResponseEntity<MovieInfo>> retrieveMovieIfModified(String movieId, String etag) {
+        return fetchMovie(movieId, etag);
+    }
+
+    private Mono<ResponseEntity<MovieInfo>> fetchMovie(String movieId, String ifNoneMatch) {
         /*var retry = Retry.fixedDelay(3, Duration.ofSeconds(1))
         //retry pour juste ce type
         .filter(ex -> ex instanceof MoviesInfoServerException)
@@ -35,6 +66,12 @@ public class MoviesInfoRestClient {
         Exceptions.propagate(retrySignal.failure()));//laisse passer l'exception du server*/
         var url = movieInfoUrl.concat("/{id}");
         return webClient.get().uri(url, movieId)
+            .accept(clientProperties.getCodec().accept())
+            .headers(headers -> {
+                if (ifNoneMatch != null) {
+                    headers.setIfNoneMatch(ifNoneMatch);
+                }
+            })
             .retrieve()
             //handle 404 exception
             .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
@@ -55,21 +92,27 @@ public class MoviesInfoRestClient {
                 MoviesInfoServerException("Server Error Exception in MovieInfoService"+ reponseMessage)
                 ));
             })
-            .bodyToMono(
-                MovieInfo.class)
-                .retryWhen(RetryUtils.retrySpec())
-                .log();
+            .toEntity(MovieInfo.class)
+                //l'ETag du service suit le MovieInfo (et reste avec lui dans le cache)
+                .doOnNext(entity -> {
+                    if (entity.getBody() != null) {
+                        entity.getBody().setEtag(entity.getHeaders().getETag());
+                    }
+                })
+                .retryWhen(RetryUtils.retrySpec(clientProperties.getRetry(), retryBudget))
+                //chaque appel alimente le budget de retry
+                .doOnSubscribe(subscription -> retryBudget.onRequest());
     }
 
-    public Flux<MovieInfo> retrieveMovieInfoStream() {
-
-        var url = movieInfoUrl.concat("/stream");
-        /*var retrySpec = RetrySpec.fixedDelay(3, Duration.ofSeconds(1))
-                .filter((ex) -> ex instanceof MoviesInfoServerException)
-                .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure())));*/
-
+    //flux des changements de movies-info-service, repris apres l'evenement resumeAfter (null : flux en direct)
+    //pas de retry ici : une nouvelle requete doit repartir du dernier evenement recu (voir MovieInfoStreamRelay)
+    public Flux<MovieInfoEvent> retrieveMovieInfoEvents(String resumeAfter) {
+        var url = movieInfoUrl.concat(resumeAfter == null ? "/stream" : "/stream?resumeAfter={resumeAfter}");
         return webClient.get()
-                .uri(url)
+                .uri(url, resumeAfter)
+                .accept(MediaType.APPLICATION_NDJSON)
+                //flux longue duree : pas de delai max entre deux elements
+                .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest().responseTimeout(null))
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
                     log.info("Status code : {}", clientResponse.statusCode().value());
@@ -81,12 +124,6 @@ public class MoviesInfoRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
                 }))
-                .bodyToFlux(MovieInfo.class)
-                //.retry(3)
-                .retryWhen(RetryUtils.retrySpec())
-                .log();
-
+                .bodyToFlux(MovieInfoEvent.class);
     }
-
-    
 }
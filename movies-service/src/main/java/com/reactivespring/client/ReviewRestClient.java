@@ -1,16 +1,33 @@
 package com.reactivespring.client;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.utils.RetryBudget;
 import com.reactivespring.utils.RetryUtils;
+import com.reactivespring.utils.SingleFlight;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -21,16 +38,92 @@ import reactor.core.publisher.Mono;
 @Component
 public class ReviewRestClient {
     
+    @Qualifier("reviewsWebClient")
     private final WebClient webClient;
+    @Qualifier("reviewsClientProperties")
+    private final RestClientProperties clientProperties;
+    @Qualifier("reviewsRetryBudget")
+    private final RetryBudget retryBudget;
+    private final CircuitBreaker reviewsCircuitBreaker;
+    private final Bulkhead reviewsBulkhead;
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
+    //les appels concurrents pour les memes films partagent un seul appel http
+    private final SingleFlight<List<String>, Review> inFlightReviews = new SingleFlight<>();
+    private final SingleFlight<String, ReviewSummary> inFlightSummaries = new SingleFlight<>();
+    private final SingleFlight<List<String>, ResponseEntity<List<Review>>> inFlightReviewLists = new SingleFlight<>();
+
     public Flux<Review> retrieveReviews(String movieId) {
-        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+        return retrieveReviews(List.of(movieId));
+    }
+
+    //un seul appel au service review pour plusieurs films
+    public Flux<Review> retrieveReviews(Collection<String> movieIds) {
+        var key = List.copyOf(movieIds);
+        return inFlightReviews.flux(key, () -> fetchReviews(key, null));
+    }
+
+    //les limit reviews les mieux notees d'un film
+    public Flux<Review> retrieveTopReviews(String movieId, int limit) {
+        return fetchReviews(List.of(movieId), limit);
+    }
+
+    //nombre, moyenne et distribution des notes calcules par le service review
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        return inFlightSummaries.mono(movieId, () -> fetchReviewSummary(movieId));
+    }
+
+    //reviews d'un film avec l'ETag du service review
+    //avec ifNoneMatch, un 304 (body vide) signifie que les reviews n'ont pas change
+    public Mono<ResponseEntity<List<Review>>> retrieveReviewList(String movieId, String ifNoneMatch) {
+        return inFlightReviewLists.mono(Arrays.asList(movieId, ifNoneMatch),
+            () -> resilient(retrieve(reviewsUrl(List.of(movieId), null), ifNoneMatch).toEntityList(Review.class)));
+    }
+
+    private Mono<ReviewSummary> fetchReviewSummary(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl.concat("/summary"))
         .queryParam("movieInfoId", movieId)
         .buildAndExpand().toString();
+        return resilient(webClient.get().uri(url)
+        .accept(clientProperties.getCodec().accept())
+        .retrieve()
+        .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+            return clientResponse.bodyToMono(String.class)
+            .flatMap(reponseMessage -> Mono.error(new
+            ReviewsClientException(reponseMessage)));
+        })
+        .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+            return clientResponse.bodyToMono(String.class)
+            .flatMap(reponseMessage -> Mono.error(new
+            ReviewsServerException("Server Error Exception in ReviewsService "+ reponseMessage)
+            ));
+        })
+        .bodyToMono(ReviewSummary.class));
+    }
+
+    private Flux<Review> fetchReviews(List<String> movieIds, Integer limit) {
+        return resilient(retrieve(reviewsUrl(movieIds, limit), null).bodyToFlux(Review.class));
+    }
+
+    private String reviewsUrl(List<String> movieIds, Integer limit) {
+        var uriBuilder = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+        .queryParam("movieInfoId", movieIds.toArray());
+        if (limit != null) {
+            uriBuilder.queryParam("limit", limit);
+        }
+        return uriBuilder.buildAndExpand().toString();
+    }
+
+    private WebClient.ResponseSpec retrieve(String url, String ifNoneMatch) {
         return webClient.get().uri(url)
+        .accept(clientProperties.getCodec().accept())
+        .headers(headers -> {
+            if (ifNoneMatch != null) {
+                headers.setIfNoneMatch(ifNoneMatch);
+            }
+        })
         .retrieve()
         //handle 404 exception
         .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
@@ -48,8 +141,59 @@ public class ReviewRestClient {
             .flatMap(reponseMessage -> Mono.error(new 
             ReviewsServerException("Server Error Exception in ReviewsService "+ reponseMessage)
             ));
+        });
+    }
+
+    //chaque tentative passe par le circuit, le bulkhead couvre l'appel avec ses retries
+    private <T> Flux<T> resilient(Flux<T> call) {
+        return call
+        .transformDeferred(CircuitBreakerOperator.of(reviewsCircuitBreaker))
+        .retryWhen(RetryUtils.retrySpec(clientProperties.getRetry(), retryBudget))
+        //chaque appel alimente le budget de retry
+        .doOnSubscribe(subscription -> retryBudget.onRequest())
+        .transformDeferred(BulkheadOperator.of(reviewsBulkhead));
+    }
+
+    private <T> Mono<T> resilient(Mono<T> call) {
+        return call
+        .transformDeferred(CircuitBreakerOperator.of(reviewsCircuitBreaker))
+        .retryWhen(RetryUtils.retrySpec(clientProperties.getRetry(), retryBudget))
+        .doOnSubscribe(subscription -> retryBudget.onRequest())
+        .transformDeferred(BulkheadOperator.of(reviewsBulkhead));
+    }
+
+    //reviews d'un film en NDJSON, emises au fil de l'eau (limit : top N par note)
+    //ni single-flight (replay garderait tout en memoire) ni retry (une reprise renverrait les reviews deja emises)
+    //pas de circuit breaker : la duree d'un flux long serait comptee comme un appel lent
+    public Flux<Review> streamReviews(String movieId, Integer limit) {
+        var uriBuilder = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+        .queryParam("movieInfoId", movieId);
+        if (limit != null) {
+            uriBuilder.queryParam("limit", limit);
+        }
+        return webClient.get().uri(uriBuilder.buildAndExpand().toString())
+        .accept(MediaType.APPLICATION_NDJSON)
+        .retrieve()
+        .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+            if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)){
+                return Mono.empty();
+            }
+            return clientResponse.bodyToMono(String.class)
+            .flatMap(reponseMessage -> Mono.error(new
+            ReviewsClientException(reponseMessage)));
+        })
+        .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+            return clientResponse.bodyToMono(String.class)
+            .flatMap(reponseMessage -> Mono.error(new
+            ReviewsServerException("Server Error Exception in ReviewsService "+ reponseMessage)
+            ));
         })
         .bodyToFlux(Review.class)
-        .retryWhen(RetryUtils.retrySpec());
+        .transformDeferred(BulkheadOperator.of(reviewsBulkhead));
+    }
+
+    //appel refuse sans contacter le service : circuit ouvert ou bulkhead plein
+    public static boolean isRejected(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
     }
 }
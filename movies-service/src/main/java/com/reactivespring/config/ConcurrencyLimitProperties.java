@@ -0,0 +1,29 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+@Data
+@Component
+@ConfigurationProperties("movies.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private int initialLimit = 50;
+    private int minLimit = 10;
+    private int maxLimit = 1000;
+    //la latence courante peut depasser la latence de reference de ce facteur avant de reduire la limite
+    private double rttTolerance = 1.5;
+    //part de la nouvelle limite estimee appliquee a chaque mesure
+    private double smoothing = 0.2;
+    //nombre de mesures de la moyenne glissante de reference
+    private int longWindow = 600;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    //chemins non limites (flux longs, actuator)
+    private List<String> excludes = new ArrayList<>();
+}
@@ -0,0 +1,77 @@
+package com.reactivespring.config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.reactivespring.utils.AdaptiveLimiter;
+import com.reactivespring.warmup.WarmUp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+//au-dela de la limite adaptative, 503 immediat avec Retry-After au lieu d'attendre dans Reactor Netty
+//apres le filtre des metriques (les 503 sont comptes) et avant la deadline
+//les requetes du warm-up ne passent pas par le limiteur : leurs latences (stand-ins) fausseraient la limite
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AdaptiveLimiter limiter;
+    private final List<PathPattern> excludes;
+    private final ObjectProvider<WarmUp> warmUp;
+
+    public ConcurrencyLimitWebFilter(ConcurrencyLimitProperties properties, MeterRegistry registry,
+            ObjectProvider<WarmUp> warmUp) {
+        this.properties = properties;
+        this.warmUp = warmUp;
+        this.limiter = new AdaptiveLimiter(properties, registry);
+        this.excludes = properties.getExcludes().stream()
+            .map(PathPatternParser.defaultInstance::parse)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!properties.isEnabled() || excludes.stream().anyMatch(pattern -> pattern.matches(path))
+                || isWarmUp(exchange)) {
+            return chain.filter(exchange);
+        }
+        if (!limiter.tryAcquire()) {
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds())));
+            return response.setComplete();
+        }
+        var start = System.nanoTime();
+        return chain.filter(exchange)
+            .doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    limiter.onIgnore();
+                } else {
+                    limiter.onComplete(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+    }
+
+    private boolean isWarmUp(ServerWebExchange exchange) {
+        var current = warmUp.getIfAvailable();
+        return current != null && current.isWarmUp(exchange);
+    }
+}
@@ -0,0 +1,34 @@
+package com.reactivespring.config;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.utils.Deadline;
+
+import reactor.core.publisher.Mono;
+
+//transmet le temps restant au service appele et n'attend pas sa reponse au-dela de la deadline
+public class DeadlineExchangeFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> Deadline.from(context)
+            .map(deadline -> {
+                if (deadline.isExpired()) {
+                    //inutile d'appeler (ou de retenter) : l'appelant a deja abandonne
+                    return Mono.<ClientResponse>error(new DeadlineExceededException(
+                        "Deadline exceeded before calling " + request.url()));
+                }
+                var withDeadline = ClientRequest.from(request)
+                    .header(Deadline.HEADER, deadline.toHeader())
+                    .build();
+                return next.exchange(withDeadline)
+                    .timeout(deadline.remaining(), Mono.error(() -> new DeadlineExceededException(
+                        "Deadline exceeded while calling " + request.url())));
+            })
+            .orElseGet(() -> next.exchange(request)));
+    }
+}
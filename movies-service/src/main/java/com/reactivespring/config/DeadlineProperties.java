@@ -0,0 +1,24 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+@Data
+@Component
+@ConfigurationProperties("movies.deadline")
+public class DeadlineProperties {
+    private boolean enabled = true;
+    private Duration defaultBudget = Duration.ofSeconds(3);
+    //budget par chemin (PathPattern), le premier qui correspond gagne
+    private Map<String, Duration> budgets = new LinkedHashMap<>();
+    //chemins sans deadline (flux longs, actuator)
+    private List<String> excludes = new ArrayList<>();
+}
@@ -0,0 +1,21 @@
+package com.reactivespring.config;
+
+import org.springframework.boot.actuate.metrics.web.reactive.client.DefaultWebClientExchangeTagsProvider;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+//ajoute le tag downstream aux timers http.client.requests (method, uri, status, outcome, clientName)
+//les deux services appeles sont sur le meme host : clientName ne suffit pas a les distinguer
+public class DownstreamTagsProvider extends DefaultWebClientExchangeTagsProvider {
+
+    public static final String DOWNSTREAM_ATTRIBUTE = DownstreamTagsProvider.class.getName() + ".downstream";
+
+    @Override
+    public Iterable<Tag> tags(ClientRequest request, ClientResponse response, Throwable throwable) {
+        var downstream = request.attribute(DOWNSTREAM_ATTRIBUTE).map(Object::toString).orElse("none");
+        return Tags.of(super.tags(request, response, throwable)).and("downstream", downstream);
+    }
+}
@@ -0,0 +1,75 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.utils.Deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//fixe la deadline de la requete (budget du chemin, ou celle de l'appelant si elle est plus courte)
+//et la place dans le Context Reactor pour que les WebClient la transmettent
+@Slf4j
+@Component
+public class MoviesDeadlineWebFilter implements WebFilter {
+
+    private final DeadlineProperties properties;
+    private final Map<PathPattern, Duration> budgets;
+    private final List<PathPattern> excludes;
+
+    public MoviesDeadlineWebFilter(DeadlineProperties properties) {
+        this.properties = properties;
+        this.budgets = properties.getBudgets().entrySet().stream()
+            .collect(Collectors.toMap(entry -> PathPatternParser.defaultInstance.parse(entry.getKey()),
+                Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new));
+        this.excludes = properties.getExcludes().stream()
+            .map(PathPatternParser.defaultInstance::parse)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!properties.isEnabled() || excludes.stream().anyMatch(pattern -> pattern.matches(path))) {
+            return chain.filter(exchange);
+        }
+        var budget = budget(path);
+        var budgetDeadline = Deadline.after(budget);
+        var deadline = Deadline.fromHeader(exchange.getRequest().getHeaders().getFirst(Deadline.HEADER))
+            .map(budgetDeadline::earliest)
+            .orElse(budgetDeadline);
+        if (deadline.isExpired()) {
+            return Mono.error(new DeadlineExceededException("Request deadline exceeded"));
+        }
+        return chain.filter(exchange)
+            //coupe tout le traitement (appels en cours, attentes de retry) a l'expiration
+            .timeout(deadline.remaining())
+            .onErrorMap(TimeoutException.class, ex -> {
+                log.warn("Request {} cancelled : deadline exceeded", path.value());
+                return new DeadlineExceededException("Request deadline exceeded");
+            })
+            .contextWrite(context -> context.put(Deadline.class, deadline).put(Deadline.BUDGET, budget));
+    }
+
+    private Duration budget(PathContainer path) {
+        return budgets.entrySet().stream()
+            .filter(entry -> entry.getKey().matches(path))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(properties.getDefaultBudget());
+    }
+}
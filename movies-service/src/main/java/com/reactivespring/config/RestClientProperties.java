@@ -0,0 +1,85 @@
+package com.reactivespring.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+
+import lombok.Data;
+
+//reglages http d'un service appele (restClient.moviesInfo, restClient.reviews)
+@Data
+public class RestClientProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private Duration writeTimeout = Duration.ofSeconds(5);
+    //format demande au service (Accept), la reponse est decodee selon son Content-Type
+    private Codec codec = Codec.SMILE;
+    private Pool pool = new Pool();
+    private Retry retry = new Retry();
+    private Hedge hedge = new Hedge();
+
+    public enum Codec {
+        JSON(MediaType.APPLICATION_JSON),
+        //JSON binaire : payload plus petit et decodage moins couteux
+        SMILE(new MediaType("application", "x-jackson-smile"));
+
+        private final MediaType mediaType;
+
+        Codec(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        //header Accept : avec Smile, JSON en repli (q=0.5) ; un service qui ne parle pas Smile
+        //repond alors en JSON au lieu d'un 406
+        public MediaType[] accept() {
+            if (this == JSON) {
+                return new MediaType[] { mediaType };
+            }
+            return new MediaType[] { mediaType, new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.5")) };
+        }
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        //-1 : file d'attente illimitee
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Retry {
+        //retries apres le premier appel (3 : jusqu'a 4 appels)
+        private long maxRetries = 3;
+        //backoff exponentiel avec full jitter : delai tire entre 0 et min(maxBackoff, minBackoff * 2^n)
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        //budget : retries limites a budgetRatio du trafic (0.2 = 20%)
+        private double budgetRatio = 0.2;
+        //retries toujours permis par seconde, meme a faible trafic
+        private double budgetMinPerSecond = 5;
+        private double budgetMaxTokens = 100;
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        //delai avant la requete de couverture
+        private Duration delay = Duration.ofMillis(100);
+        //utilise le p95 observe a la place de delay (des que minSamples appels sont mesures)
+        private boolean adaptiveDelay = false;
+        private long minSamples = 100;
+        //charge supplementaire max : chaque appel depose maxExtraLoad jeton, chaque couverture en consomme un
+        private double maxExtraLoad = 0.1;
+        private double maxTokens = 10;
+    }
+}
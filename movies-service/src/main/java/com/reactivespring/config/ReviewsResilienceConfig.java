@@ -0,0 +1,47 @@
+package com.reactivespring.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//circuit breaker et bulkhead du service review (resilience4j.*.instances.reviews dans application.yml)
+//l'etat du circuit et les appels refuses sont deja exportes par resilience4j-micrometer,
+//on ajoute le compte des transitions et des refus du bulkhead
+@Slf4j
+@Configuration
+public class ReviewsResilienceConfig {
+
+    public static final String REVIEWS = "reviews";
+
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry) {
+        var circuitBreaker = registry.circuitBreaker(REVIEWS);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Circuit breaker {} : {}", event.getCircuitBreakerName(), event.getStateTransition());
+            Counter.builder("resilience4j.circuitbreaker.transitions")
+                .tag("name", event.getCircuitBreakerName())
+                .tag("from", event.getStateTransition().getFromState().name())
+                .tag("to", event.getStateTransition().getToState().name())
+                .register(meterRegistry)
+                .increment();
+        });
+        return circuitBreaker;
+    }
+
+    @Bean
+    public Bulkhead reviewsBulkhead(BulkheadRegistry registry, MeterRegistry meterRegistry) {
+        var bulkhead = registry.bulkhead(REVIEWS);
+        var rejected = Counter.builder("resilience4j.bulkhead.rejected.calls")
+            .tag("name", bulkhead.getName())
+            .register(meterRegistry);
+        bulkhead.getEventPublisher().onCallRejected(event -> rejected.increment());
+        return bulkhead;
+    }
+}
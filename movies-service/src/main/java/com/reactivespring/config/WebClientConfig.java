@@ -1,14 +1,103 @@
 package com.reactivespring.config;
 
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.reactivespring.utils.Hedger;
+import com.reactivespring.utils.RetryBudget;
+import com.reactivespring.warmup.WarmUpExchangeFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+//un WebClient, un pool de connexions et un budget de retry dedies par service appele
 @Configuration
 public class WebClientConfig {
-    
+
+    @Bean
+    @ConfigurationProperties("rest-client.movies-info")
+    public RestClientProperties moviesInfoClientProperties() {
+        return new RestClientProperties();
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder){
-        return builder.build();
+    @ConfigurationProperties("rest-client.reviews")
+    public RestClientProperties reviewsClientProperties() {
+        return new RestClientProperties();
+    }
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder builder,
+            @Qualifier("moviesInfoClientProperties") RestClientProperties properties, WarmUpExchangeFilter warmUpFilter) {
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient("moviesInfo", properties)))
+            .defaultRequest(request -> request.attribute(DownstreamTagsProvider.DOWNSTREAM_ATTRIBUTE, "moviesInfo"))
+            .filter(new DeadlineExchangeFilter())
+            //en dernier : pendant le warm-up, la reponse remplace l'appel reseau
+            .filter(warmUpFilter)
+            .build();
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder,
+            @Qualifier("reviewsClientProperties") RestClientProperties properties, WarmUpExchangeFilter warmUpFilter) {
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient("reviews", properties)))
+            .defaultRequest(request -> request.attribute(DownstreamTagsProvider.DOWNSTREAM_ATTRIBUTE, "reviews"))
+            .filter(new DeadlineExchangeFilter())
+            //en dernier : pendant le warm-up, la reponse remplace l'appel reseau
+            .filter(warmUpFilter)
+            .build();
+    }
+
+    @Bean
+    public DownstreamTagsProvider downstreamTagsProvider() {
+        return new DownstreamTagsProvider();
+    }
+
+    @Bean
+    public RetryBudget moviesInfoRetryBudget(
+            @Qualifier("moviesInfoClientProperties") RestClientProperties properties, MeterRegistry registry) {
+        return new RetryBudget("moviesInfo", properties.getRetry(), registry);
+    }
+
+    @Bean
+    public RetryBudget reviewsRetryBudget(
+            @Qualifier("reviewsClientProperties") RestClientProperties properties, MeterRegistry registry) {
+        return new RetryBudget("reviews", properties.getRetry(), registry);
+    }
+
+    @Bean
+    public Hedger moviesInfoHedger(
+            @Qualifier("moviesInfoClientProperties") RestClientProperties properties, MeterRegistry registry) {
+        return new Hedger("moviesInfo", properties.getHedge(), registry);
+    }
+
+    private HttpClient httpClient(String name, RestClientProperties properties) {
+        var pool = properties.getPool();
+        //metrics(true) : jauges reactor.netty.connection.provider.* (active, idle, pending) par pool
+        var connectionProvider = ConnectionProvider.builder(name)
+            .maxConnections(pool.getMaxConnections())
+            .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .maxLifeTime(pool.getMaxLifeTime())
+            .evictInBackground(pool.getEvictInBackground())
+            .metrics(true)
+            .build();
+        var writeTimeout = properties.getWriteTimeout().toMillis();
+        return HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+            //delai max entre deux lectures de la reponse
+            .responseTimeout(properties.getReadTimeout())
+            .doOnConnected(connection -> connection
+                .addHandlerLast(new WriteTimeoutHandler(writeTimeout, TimeUnit.MILLISECONDS)));
     }
 }
@@ -0,0 +1,50 @@
+package com.reactivespring.controller;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+//ETag de GET /v1/movies/{id} : "i-<ETag movie info>.r-<ETag reviews>"
+//chaque partie est l'ETag du service d'origine, renvoye tel quel en If-None-Match
+@Getter
+@RequiredArgsConstructor
+class CombinedETag {
+
+    private static final Pattern PATTERN = Pattern.compile("^(?:W/)?\"i-([^.\"]+)\\.r-([^\"]+)\"$");
+
+    private final String movieInfo;
+    private final String reviews;
+
+    //null si l'une des deux parties manque : pas d'ETag pour le film
+    static String of(String movieInfoETag, String reviewsETag) {
+        if (movieInfoETag == null || reviewsETag == null) {
+            return null;
+        }
+        return new CombinedETag(quoted(movieInfoETag), quoted(reviewsETag)).toString();
+    }
+
+    //premier ETag de If-None-Match qui a la forme combinee
+    static Optional<CombinedETag> parse(List<String> ifNoneMatch) {
+        return ifNoneMatch.stream()
+            .map(PATTERN::matcher)
+            .filter(matcher -> matcher.matches())
+            .map(matcher -> new CombinedETag(quoted(matcher.group(1)), quoted(matcher.group(2))))
+            .findFirst();
+    }
+
+    @Override
+    public String toString() {
+        return "\"i-" + unquoted(movieInfo) + ".r-" + unquoted(reviews) + "\"";
+    }
+
+    private static String quoted(String etag) {
+        return "\"" + unquoted(etag) + "\"";
+    }
+
+    private static String unquoted(String etag) {
+        return etag.replaceFirst("^W/", "").replace("\"", "");
+    }
+}
@@ -1,45 +1,284 @@
 package com.reactivespring.controller;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 
+import com.reactivespring.client.MovieInfoStreamRelay;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.MoviesInfoClientException;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
+@Slf4j
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/v1/movies")
 public class Moviescontroller {
-    
+
     private final MoviesInfoRestClient moviesInfoRestClient;
     private final ReviewRestClient reviewRestClient;
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().latest();
+    private final MovieInfoStreamRelay movieInfoStreamRelay;
+
+    @Value("${movies.batch.concurrency:16}")
+    private int batchConcurrency;
+
+    @Value("${movies.batch.reviewsChunkSize:50}")
+    private int batchReviewsChunkSize;
+
+    @Value("${movies.batch.maxIds:200}")
+    private int batchMaxIds;
+
+    @Value("${movies.speculativeReviews:false}")
+    private boolean speculativeReviews;
 
+    @Value("${movies.reviews.defaultMode:full}")
+    private String defaultReviewsMode;
 
+
+    //reviews : full (toutes les reviews), summary (nombre, moyenne, distribution) ou top(n)
+    //en mode full, ETag combine movie info + reviews (voir CombinedETag)
     @GetMapping("{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId,
+            @RequestParam(value = "reviews", required = false) String reviews, ServerWebExchange exchange) {
+        var mode = ReviewsMode.parse(reviews != null ? reviews : defaultReviewsMode);
+        var ifNoneMatch = mode.getType() == ReviewsMode.Type.FULL
+            ? CombinedETag.parse(exchange.getRequest().getHeaders().getIfNoneMatch())
+            : Optional.<CombinedETag>empty();
+        if (ifNoneMatch.isPresent()) {
+            return conditionalMovie(movieId, ifNoneMatch.get(), exchange);
+        }
+        return assembleMovie(movieId, mode, exchange);
+    }
+
+    //GET conditionnels vers les deux services : s'ils repondent 304, aucun body ne transite
+    //sinon le film est construit avec leurs reponses ; une partie en 304 n'a pas de body :
+    //le movie info est repris du cache, les reviews sont relues, et l'ETag valide est garde
+    private Mono<Movie> conditionalMovie(String movieId, CombinedETag etag, ServerWebExchange exchange) {
+        return Mono.zip(moviesInfoRestClient.retrieveMovieIfModified(movieId, etag.getMovieInfo()),
+                orEmptyIfRejected(movieId, reviewRestClient.retrieveReviewList(movieId, etag.getReviews())))
+            .flatMap(responses -> {
+                var movieInfoNotModified = responses.getT1().getStatusCode() == HttpStatus.NOT_MODIFIED;
+                var reviewsNotModified = responses.getT2()
+                    .map(entity -> entity.getStatusCode() == HttpStatus.NOT_MODIFIED)
+                    .orElse(false);
+                if (movieInfoNotModified && reviewsNotModified && exchange.checkNotModified(etag.toString())) {
+                    return Mono.<Movie>empty();
+                }
+                var movieInfo = movieInfoNotModified
+                    ? moviesInfoRestClient.retrieveMovie(movieId)
+                    : Mono.justOrEmpty(responses.getT1().getBody());
+                var movieInfoETag = movieInfoNotModified ? etag.getMovieInfo() : responses.getT1().getHeaders().getETag();
+                var reviewList = reviewsNotModified
+                    ? orEmptyIfRejected(movieId, reviewRestClient.retrieveReviewList(movieId, null))
+                    : Mono.just(responses.getT2());
+                return Mono.zip(movieInfo, reviewList,
+                    (currentMovieInfo, currentReviewList) -> fullMovie(currentMovieInfo, movieInfoETag, currentReviewList));
+            })
+            .flatMap(movie -> notModified(movie, exchange));
+    }
+
+    private Mono<Movie> assembleMovie(String movieId, ReviewsMode mode, ServerWebExchange exchange) {
+        Mono<Movie> movie;
+        if (speculativeReviews) {
+            //les deux appels partent en meme temps, zip annule les reviews si movie-info echoue (404)
+            movie = Mono.zip(moviesInfoRestClient.retrieveMovie(movieId),
+                retrieveReviews(movieId, mode),
+                (movieInfo, toMovie) -> toMovie.apply(movieInfo));
+        } else {
+            movie = moviesInfoRestClient.retrieveMovie(movieId)
+            .flatMap( movieInfo -> retrieveReviews(movieId, mode)
+                .map(toMovie -> toMovie.apply(movieInfo))
+            );
+        }
+        return movie.flatMap(assembled -> notModified(assembled, exchange));
+    }
+
+    //304 avant de serialiser le film si le client a deja cette version
+    private static Mono<Movie> notModified(Movie movie, ServerWebExchange exchange) {
+        return movie.getEtag() != null && exchange.checkNotModified(movie.getEtag())
+            ? Mono.empty()
+            : Mono.just(movie);
+    }
+
+    //la partie reviews du film selon le mode, completee ensuite avec le MovieInfo
+    private Mono<Function<MovieInfo, Movie>> retrieveReviews(String movieId, ReviewsMode mode) {
+        switch (mode.getType()) {
+            case SUMMARY:
+                return orEmptyIfRejected(movieId, reviewRestClient.retrieveReviewSummary(movieId))
+                    .map(summary -> movieInfo -> summary
+                        .map(reviewSummary -> Movie.withSummary(movieInfo, reviewSummary))
+                        .orElseGet(() -> Movie.partial(movieInfo)));
+            case TOP:
+                return orEmptyIfRejected(movieId,
+                        reviewRestClient.retrieveTopReviews(movieId, mode.getLimit()).collectList())
+                    .map(reviewList -> movieInfo -> toMovie(movieInfo, reviewList));
+            case FULL:
+            default:
+                return orEmptyIfRejected(movieId, reviewRestClient.retrieveReviewList(movieId, null))
+                    .map(reviewList -> movieInfo -> fullMovie(movieInfo, movieInfo.getEtag(), reviewList));
+        }
+    }
+
+    private static Movie fullMovie(MovieInfo movieInfo, String movieInfoETag,
+            Optional<ResponseEntity<List<Review>>> reviewList) {
+        var movie = toMovie(movieInfo, reviewList
+            .map(entity -> entity.getBody() != null ? entity.getBody() : List.<Review>of()));
+        movie.setEtag(CombinedETag.of(movieInfoETag,
+            reviewList.map(entity -> entity.getHeaders().getETag()).orElse(null)));
+        return movie;
+    }
+
+    //GET /v1/movies/{id}/stream en NDJSON : le MovieInfo en premiere ligne puis les reviews au fil de l'eau,
+    //sans collectList (backpressure jusqu'au service review) ; limit : top N des reviews par note
+    @GetMapping(value = "{id}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> streamMovieById(@PathVariable("id") String movieId,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a positive integer but was " + limit);
+        }
         return moviesInfoRestClient.retrieveMovie(movieId)
-        .flatMap( movieInfo -> {
-            var reviewListMono = reviewRestClient.retrieveReviews(movieId)
-                .collectList();
-            return reviewListMono.map(review -> new Movie(movieInfo, review));
+            .flatMapMany(movieInfo -> Flux.concat(Mono.just(movieInfo),
+                reviewRestClient.streamReviews(movieId, limit)
+                    .onErrorResume(ReviewRestClient::isRejected, ex -> {
+                        log.warn("Reviews of movie {} skipped : {}", movieId, ex.getMessage());
+                        return Flux.empty();
+                    })));
+    }
+
+    //vide si le service review est coupe (circuit ouvert ou bulkhead plein) :
+    //le film est renvoye sans reviews au lieu de passer par le GlobalErrorHandler
+    private <T> Mono<Optional<T>> orEmptyIfRejected(String movieId, Mono<T> reviews) {
+        return reviews
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .onErrorResume(ReviewRestClient::isRejected, ex -> {
+                log.warn("Reviews of movie {} skipped : {}", movieId, ex.getMessage());
+                return Mono.just(Optional.empty());
+            });
+    }
+
+    private static Movie toMovie(MovieInfo movieInfo, Optional<List<Review>> reviewList) {
+        return reviewList.map(reviews -> new Movie(movieInfo, reviews))
+            .orElseGet(() -> Movie.partial(movieInfo));
+    }
+
+    //batch : GET /v1/movies?ids=1,2,3 en NDJSON, ordre de completion (ou ordre de la requete avec ordered=true)
+    //au plus movies.batch.maxIds ids distincts ; une erreur sur un film ou un paquet de reviews ne coupe pas le flux
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds,
+            @RequestParam(value = "ordered", defaultValue = "false") boolean ordered) {
+        var distinctIds = new LinkedHashSet<>(movieIds);
+        if (distinctIds.size() > batchMaxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "at most " + batchMaxIds + " ids per request but got " + distinctIds.size());
+        }
+        var chunkedIds = Flux.fromIterable(distinctIds)
+            .buffer(batchReviewsChunkSize)
+            .concatMap(chunk -> {
+                var reviewsByMovieId = retrieveReviewsByMovieId(chunk);
+                return Flux.fromIterable(chunk)
+                    .map(movieId -> Map.entry(movieId, reviewsByMovieId));
+            });
+        if (ordered) {
+            return chunkedIds.flatMapSequential(entry -> retrieveMovie(entry.getKey(), entry.getValue()),
+                batchConcurrency);
+        }
+        return chunkedIds.flatMap(entry -> retrieveMovie(entry.getKey(), entry.getValue()),
+            batchConcurrency);
+    }
+
+    //un seul appel review par paquet, partage par tous les films du paquet
+    //le service review n'a que des ids numeriques : les autres (ObjectId du service movie info) n'ont pas de reviews
+    //et ne sont pas envoyes ; si l'appel echoue (circuit ouvert, 5xx apres les retries), les films du paquet sont partiels
+    private Mono<Optional<Map<String, Collection<Review>>>> retrieveReviewsByMovieId(List<String> chunk) {
+        var reviewIds = chunk.stream()
+            .filter(Moviescontroller::isReviewId)
+            .collect(Collectors.toList());
+        if (reviewIds.isEmpty()) {
+            return Mono.just(Optional.of(Map.of()));
         }
-        );
+        return reviewRestClient.retrieveReviews(reviewIds)
+            .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+            .map(Optional::of)
+            .onErrorResume(ex -> {
+                log.warn("Reviews of movies {} skipped : {}", reviewIds, ex.getMessage());
+                return Mono.just(Optional.empty());
+            })
+            .cache();
     }
 
+    private static boolean isReviewId(String movieId) {
+        try {
+            Long.parseLong(movieId);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private Mono<Movie> retrieveMovie(String movieId,
+            Mono<Optional<Map<String, Collection<Review>>>> reviewsByMovieId) {
+        return moviesInfoRestClient.retrieveMovie(movieId)
+            .flatMap(movieInfo -> reviewsByMovieId
+                .map(reviews -> toMovie(movieInfo,
+                    reviews.map(byMovieId -> List.copyOf(byMovieId.getOrDefault(movieId, List.of()))))))
+            //un id inconnu ou un movie info en erreur ne doit pas couper tout le flux : le film est omis
+            .onErrorResume(ex -> {
+                if (isNotFound(ex)) {
+                    log.info("Movie {} skipped in batch : {}", movieId, ex.getMessage());
+                } else {
+                    log.warn("Movie {} skipped in batch : {}", movieId, ex.getMessage());
+                }
+                return Mono.empty();
+            });
+    }
+
+    private static boolean isNotFound(Throwable ex) {
+        return ex instanceof MoviesInfoClientException
+            && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.NOT_FOUND.value();
+    }
+
+    //overflow : drop (defaut), latest ou buffer (jusqu'a bufferSize elements en attente)
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> streamMovieInfos() {
+    public Flux<MovieInfo> streamMovieInfos(@RequestParam(value = "overflow", defaultValue = "drop") String overflow,
+            @RequestParam(value = "bufferSize", defaultValue = "256") int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "bufferSize must be a positive integer but was " + bufferSize);
+        }
+        return movieInfoStreamRelay.stream(parseOverflow(overflow), bufferSize);
+    }
 
-        return movieInfoSink.asFlux();
+    private static MovieInfoStreamRelay.Overflow parseOverflow(String overflow) {
+        try {
+            return MovieInfoStreamRelay.Overflow.valueOf(overflow.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "overflow must be one of drop, latest or buffer but was " + overflow);
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.reactivespring.controller;
+
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+//parametre reviews de GET /v1/movies/{id} : full, summary ou top(n)
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class ReviewsMode {
+
+    enum Type { FULL, SUMMARY, TOP }
+
+    private static final Pattern TOP_PATTERN = Pattern.compile("top\\((\\d+)\\)");
+
+    private final Type type;
+    private final int limit;
+
+    static ReviewsMode parse(String value) {
+        var mode = value.trim().toLowerCase();
+        if (mode.equals("full")) {
+            return new ReviewsMode(Type.FULL, 0);
+        }
+        if (mode.equals("summary")) {
+            return new ReviewsMode(Type.SUMMARY, 0);
+        }
+        var top = TOP_PATTERN.matcher(mode);
+        if (top.matches() && Integer.parseInt(top.group(1)) > 0) {
+            return new ReviewsMode(Type.TOP, Integer.parseInt(top.group(1)));
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "reviews must be one of full, summary or top(n) but was " + value);
+    }
+}
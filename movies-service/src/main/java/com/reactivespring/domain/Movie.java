@@ -1,6 +1,9 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,5 +16,27 @@ import java.util.List;
 public class Movie {
 
     private MovieInfo movieInfo;
+    //absent en mode reviews=summary
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Review> reviewList;
+    //present seulement en mode reviews=summary
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ReviewSummary reviewSummary;
+    //true quand les reviews n'ont pas pu etre lues (circuit ouvert ou bulkhead plein)
+    private boolean partial;
+    //ETag combine (movie info + reviews), envoye en header et non dans le body
+    @JsonIgnore
+    private String etag;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, null, false, null);
+    }
+
+    public static Movie withSummary(MovieInfo movieInfo, ReviewSummary reviewSummary) {
+        return new Movie(movieInfo, null, reviewSummary, false, null);
+    }
+
+    public static Movie partial(MovieInfo movieInfo) {
+        return new Movie(movieInfo, List.of(), null, true, null);
+    }
 }
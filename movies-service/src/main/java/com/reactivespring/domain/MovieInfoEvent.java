@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//changement d'un MovieInfo, recu du flux /v1/movieInfos/stream de movies-info-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type { INSERT, UPDATE, REPLACE, DELETE }
+
+    //resume token : reprise du flux juste apres cet evenement (resumeAfter)
+    private String id;
+
+    private Type type;
+
+    private String movieInfoId;
+
+    //null pour DELETE
+    private MovieInfo movieInfo;
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.domain;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private Double averageRating;
+    //nombre de reviews par note arrondie a l'entier inferieur
+    private Map<Integer, Long> distribution;
+}
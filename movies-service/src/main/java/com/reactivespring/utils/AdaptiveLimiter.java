@@ -0,0 +1,85 @@
+package com.reactivespring.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.reactivespring.config.ConcurrencyLimitProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//limite de requetes simultanees ajustee sur la latence observee (algorithme gradient) :
+//tant que la latence reste proche de la latence de reference (moyenne longue), la limite monte de sqrt(limite),
+//quand les requetes font la queue la latence monte et la limite baisse (au plus de moitie par mesure)
+public class AdaptiveLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    private volatile double estimatedLimit;
+    private double longRtt;
+    private long samples;
+
+    public AdaptiveLimiter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.estimatedLimit = properties.getInitialLimit();
+        this.rejected = Counter.builder("movies.concurrency.rejected")
+            .register(registry);
+        Gauge.builder("movies.concurrency.limit", this, AdaptiveLimiter::getLimit)
+            .register(registry);
+        Gauge.builder("movies.concurrency.inflight", this, AdaptiveLimiter::getInFlight)
+            .register(registry);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    //requete terminee (reponse ou erreur) : la latence ajuste la limite
+    public void onComplete(long rtt, TimeUnit unit) {
+        var inFlightBefore = inFlight.getAndDecrement();
+        onSample(unit.toNanos(rtt), inFlightBefore);
+    }
+
+    //requete annulee (client parti) : pas de mesure de latence
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rtt, int inFlightBefore) {
+        samples++;
+        var window = Math.min(samples, properties.getLongWindow());
+        longRtt = samples == 1 ? rtt : longRtt + (rtt - longRtt) / window;
+        //la latence de reference suit vite une baisse durable (nouvelle instance du service appele, cache chaud)
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        //peu de requetes en cours : la latence ne dit rien de la limite
+        if (inFlightBefore < estimatedLimit / 2) {
+            return;
+        }
+        var gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRtt / rtt));
+        var newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+        estimatedLimit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+    }
+}
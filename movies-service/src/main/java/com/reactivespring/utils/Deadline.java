@@ -0,0 +1,91 @@
+package com.reactivespring.utils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import com.reactivespring.exception.DeadlineExceededException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+//date limite d'une requete, transmise aux services appeles sous forme de temps restant en ms
+//(relatif plutot qu'une date absolue : pas de dependance a l'horloge des autres machines)
+public final class Deadline {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+    //budget de la route, garde dans le Context pour les appels partages (voir detach)
+    public static final String BUDGET = Deadline.class.getName() + ".budget";
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    //valeur du header recu, vide si absent ou invalide
+    public static Optional<Deadline> fromHeader(String header) {
+        if (header == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(after(Duration.ofMillis(Long.parseLong(header.trim()))));
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    public static Optional<Deadline> from(ContextView context) {
+        return context.getOrEmpty(Deadline.class);
+    }
+
+    //appel partage entre plusieurs requetes (cache, single-flight) : il ne doit pas heriter de la deadline
+    //de la requete qui l'a declenche, sinon la plus pressee l'annule pour toutes
+    //il recoit une deadline neuve du budget complet de la route, la plus longue qu'un appelant puisse avoir
+    public static Context detach(Context context) {
+        return context.<Duration>getOrEmpty(BUDGET)
+            .map(budget -> context.put(Deadline.class, after(budget)))
+            .orElseGet(() -> context.delete(Deadline.class));
+    }
+
+    //chaque appelant n'attend le resultat partage que jusqu'a sa propre deadline
+    public static <T> Mono<T> bound(Mono<T> shared) {
+        return Mono.deferContextual(context -> from(context)
+            .map(deadline -> deadline.isExpired()
+                ? Mono.<T>error(new DeadlineExceededException("Deadline exceeded before the shared call"))
+                : shared.timeout(deadline.remaining(), Mono.error(() -> new DeadlineExceededException(
+                    "Deadline exceeded while waiting for the shared call"))))
+            .orElse(shared));
+    }
+
+    public static <T> Flux<T> bound(Flux<T> shared) {
+        return Flux.deferContextual(context -> from(context)
+            .map(deadline -> deadline.isExpired()
+                ? Flux.<T>error(new DeadlineExceededException("Deadline exceeded before the shared call"))
+                : shared.take(deadline.remaining()).concatWith(Mono.defer(() -> deadline.isExpired()
+                    ? Mono.error(new DeadlineExceededException("Deadline exceeded while waiting for the shared call"))
+                    : Mono.empty())))
+            .orElse(shared));
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    public Deadline earliest(Deadline other) {
+        return expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    public String toHeader() {
+        return String.valueOf(Math.max(0, remaining().toMillis()));
+    }
+}
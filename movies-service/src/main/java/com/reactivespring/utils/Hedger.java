@@ -0,0 +1,127 @@
+package com.reactivespring.utils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.warmup.WarmUp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+//hedged requests : si la premiere requete n'a pas repondu apres le delai, on en envoie une seconde
+//la premiere reponse gagne et l'autre est annulee (une erreur ne gagne pas la course)
+public class Hedger {
+
+    private final RestClientProperties.Hedge properties;
+    private final Timer latency;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter skipped;
+
+    private double tokens;
+
+    public Hedger(String downstream, RestClientProperties.Hedge properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.tokens = properties.getMaxTokens();
+        this.latency = Timer.builder("restclient.hedge.latency")
+            .tag("downstream", downstream)
+            .publishPercentiles(0.95)
+            .register(registry);
+        this.fired = Counter.builder("restclient.hedge.fired")
+            .tag("downstream", downstream)
+            .register(registry);
+        this.won = Counter.builder("restclient.hedge.won")
+            .tag("downstream", downstream)
+            .register(registry);
+        this.skipped = Counter.builder("restclient.hedge.skipped")
+            .tag("downstream", downstream)
+            .register(registry);
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        return Mono.deferContextual(context -> {
+            //warm-up : le stand-in repond tout de suite, ni couverture ni latence enregistree
+            if (WarmUp.isWarmUp(context)) {
+                return call.get();
+            }
+            deposit();
+            var primaryError = new AtomicReference<Throwable>();
+            var primaryDone = Sinks.<Long>empty();
+            var primary = timed(call.get())
+                .doOnError(ex -> {
+                    primaryError.set(ex);
+                    primaryDone.tryEmitEmpty();
+                })
+                .doOnSuccess(value -> {
+                    if (value == null) {
+                        primaryDone.tryEmitEmpty();
+                    }
+                });
+            var hedged = Mono.delay(delay())
+                //premiere requete terminee sans valeur (404 par ex.) avant le delai : pas de couverture
+                .or(primaryDone.asMono())
+                .flatMap(tick -> {
+                    if (!tryAcquire()) {
+                        skipped.increment();
+                        //pas de couverture : on laisse la premiere requete repondre
+                        return Mono.<T>empty();
+                    }
+                    fired.increment();
+                    return timed(call.get()).doOnNext(value -> won.increment());
+                });
+            //la premiere valeur gagne : une erreur ne l'emporte pas sur l'autre requete encore en cours
+            //sans valeur des deux cotes, c'est l'issue de la premiere requete qui remonte (erreur ou vide)
+            return Mono.firstWithValue(primary, hedged)
+                .onErrorResume(ex -> primaryError.get() != null ? Mono.error(primaryError.get()) : Mono.empty());
+        });
+    }
+
+    Duration delay() {
+        if (properties.isAdaptiveDelay() && latency.count() >= properties.getMinSamples()) {
+            var percentiles = latency.takeSnapshot().percentileValues();
+            if (percentiles.length > 0) {
+                return Duration.ofNanos((long) percentiles[0].value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return properties.getDelay();
+    }
+
+    //la requete perdante est annulee : sa duree jusqu'a l'annulation est enregistree aussi (borne basse),
+    //sinon les reponses lentes qui declenchent la couverture disparaitraient du p95 et le delai baisserait
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            var recorded = new AtomicBoolean();
+            Runnable record = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+            return call
+                .doOnNext(value -> record.run())
+                .doOnCancel(record);
+        });
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(properties.getMaxTokens(), tokens + properties.getMaxExtraLoad());
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
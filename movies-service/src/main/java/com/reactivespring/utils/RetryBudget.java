@@ -0,0 +1,70 @@
+package com.reactivespring.utils;
+
+import com.reactivespring.config.RestClientProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//seau a jetons partage par tous les appels vers un meme service :
+//chaque requete depose budgetRatio jeton, chaque retry en consomme un
+//le seau se remplit aussi de budgetMinPerSecond jetons par seconde
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxTokens;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public RetryBudget(String downstream, RestClientProperties.Retry properties, MeterRegistry registry) {
+        this.ratio = properties.getBudgetRatio();
+        this.minPerSecond = properties.getBudgetMinPerSecond();
+        this.maxTokens = properties.getBudgetMaxTokens();
+        this.tokens = maxTokens;
+        this.retries = Counter.builder("restclient.retries")
+            .tag("downstream", downstream)
+            .register(registry);
+        this.exhausted = Counter.builder("restclient.retry.budget.exhausted")
+            .tag("downstream", downstream)
+            .register(registry);
+        Gauge.builder("restclient.retry.budget.tokens", this, RetryBudget::availableTokens)
+            .tag("downstream", downstream)
+            .register(registry);
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            exhausted.increment();
+            return false;
+        }
+        tokens -= 1;
+        retries.increment();
+        return true;
+    }
+
+    //seau plein, comme au demarrage (apres le warm-up)
+    public synchronized void reset() {
+        tokens = maxTokens;
+        lastRefill = System.nanoTime();
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        var now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - lastRefill) / 1e9 * minPerSecond);
+        lastRefill = now;
+    }
+}
@@ -1,20 +1,40 @@
 package com.reactivespring.utils;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsServerException;
 
-import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 public class RetryUtils {
-    
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-        .filter(ex -> ex instanceof MoviesInfoServerException ||
-        ex instanceof ReviewsServerException)
-        .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> 
-        Exceptions.propagate(retrySignal.failure()));
+
+    //backoff exponentiel avec full jitter, dans la limite du budget du service appele
+    //sans retry possible on laisse passer l'exception du server
+    public static Retry retrySpec(RestClientProperties.Retry properties, RetryBudget budget) {
+        return Retry.from(retrySignals -> retrySignals.concatMap(retrySignal -> {
+            var failure = retrySignal.failure();
+            if (!isRetryable(failure) || retrySignal.totalRetries() >= properties.getMaxRetries()
+                    || !budget.tryAcquire()) {
+                return Mono.error(failure);
+            }
+            return Mono.delay(backoff(retrySignal.totalRetries(), properties));
+        }));
+    }
+
+    public static boolean isRetryable(Throwable ex) {
+        return ex instanceof MoviesInfoServerException ||
+        ex instanceof ReviewsServerException;
+    }
+
+    static Duration backoff(long retry, RestClientProperties.Retry properties) {
+        var maxBackoff = properties.getMaxBackoff().toMillis();
+        //2^retry borne pour eviter le depassement
+        var exponential = properties.getMinBackoff().toMillis() << Math.min(retry, 30);
+        var ceiling = exponential <= 0 ? maxBackoff : Math.min(maxBackoff, exponential);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
     }
 }
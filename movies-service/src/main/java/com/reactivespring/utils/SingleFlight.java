@@ -0,0 +1,51 @@
+package com.reactivespring.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//regroupe les appels concurrents pour une meme cle sur un seul appel upstream
+//l'entree est retiree des que l'appel se termine (succes, erreur ou annulation)
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Publisher<V>> inFlight = new ConcurrentHashMap<>();
+
+    //share() : l'annulation d'un appelant n'annule pas l'appel pour les autres
+    //l'appel partage ne prend pas la deadline du premier appelant, chacun applique la sienne en aval (voir Deadline.bound)
+    @SuppressWarnings("unchecked")
+    public Mono<V> mono(K key, Supplier<Mono<V>> call) {
+        return Deadline.bound(Mono.defer(() -> (Mono<V>) inFlight.computeIfAbsent(key, k -> {
+            var shared = new AtomicReference<Publisher<V>>();
+            shared.set(call.get()
+                .doFinally(signal -> inFlight.remove(k, shared.get()))
+                .contextWrite(Deadline::detach)
+                .share());
+            return shared.get();
+        })));
+    }
+
+    //replay() : un appelant arrive en cours de route recoit aussi les elements deja emis
+    //refCount() : l'appel upstream n'est annule que si tous les appelants annulent
+    @SuppressWarnings("unchecked")
+    public Flux<V> flux(K key, Supplier<Flux<V>> call) {
+        return Deadline.bound(Flux.defer(() -> (Flux<V>) inFlight.computeIfAbsent(key, k -> {
+            var shared = new AtomicReference<Publisher<V>>();
+            shared.set(call.get()
+                .doFinally(signal -> inFlight.remove(k, shared.get()))
+                .contextWrite(Deadline::detach)
+                .replay()
+                .refCount());
+            return shared.get();
+        })));
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
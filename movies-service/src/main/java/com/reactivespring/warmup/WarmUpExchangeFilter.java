@@ -0,0 +1,97 @@
+package com.reactivespring.warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//stand-in de movies-info-service et movies-review-service pour les requetes du warm-up :
+//la reponse est fabriquee ici puis decodee comme une vraie (JSON, Smile ou NDJSON selon Accept)
+@Component
+public class WarmUpExchangeFilter implements ExchangeFilterFunction {
+
+    private static final int REVIEWS = 20;
+
+    private final ObjectMapper json;
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+    private final String reviewsUrl;
+
+    public WarmUpExchangeFilter(ObjectMapper objectMapper, @Value("${restClient.reviewsUrl}") String reviewsUrl) {
+        this.json = objectMapper;
+        this.reviewsUrl = reviewsUrl;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> WarmUp.isWarmUp(context)
+            ? Mono.fromCallable(() -> standIn(request))
+            : next.exchange(request));
+    }
+
+    private ClientResponse standIn(ClientRequest request) throws IOException {
+        var url = request.url().toString();
+        Object body;
+        if (!url.startsWith(reviewsUrl)) {
+            body = movieInfo(url.substring(url.lastIndexOf('/') + 1));
+        } else if (request.url().getPath().endsWith("/summary")) {
+            body = new ReviewSummary(1L, REVIEWS, 4.5, Map.of(4, 10L, 5, 10L));
+        } else {
+            body = reviews();
+        }
+        var accept = request.headers().getAccept();
+        MediaType contentType;
+        byte[] bytes;
+        if (accept.contains(MediaType.APPLICATION_NDJSON) && body instanceof List) {
+            contentType = MediaType.APPLICATION_NDJSON;
+            var lines = new StringBuilder();
+            for (var element : (List<?>) body) {
+                lines.append(json.writeValueAsString(element)).append('\n');
+            }
+            bytes = lines.toString().getBytes();
+        } else if (accept.contains(RestClientProperties.Codec.SMILE.mediaType())) {
+            contentType = RestClientProperties.Codec.SMILE.mediaType();
+            bytes = smile.writeValueAsBytes(body);
+        } else {
+            contentType = MediaType.APPLICATION_JSON;
+            bytes = json.writeValueAsBytes(body);
+        }
+        return ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, contentType.toString())
+            .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)))
+            .build();
+    }
+
+    private static MovieInfo movieInfo(String movieId) {
+        return new MovieInfo(movieId, "Batman Begins", 2005,
+            List.of("Christian Bale", "Michael Cane", "Liam Neeson", "Katie Holmes"), LocalDate.parse("2005-06-15"));
+    }
+
+    private static List<Review> reviews() {
+        return IntStream.range(0, REVIEWS)
+            .mapToObj(i -> new Review("warmup-" + i, 1L, "Awesome Movie, great cast and a memorable score", 4.0 + i % 2))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+package com.reactivespring.warmup;
+
+import java.util.List;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.utils.RetryBudget;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+//films chauds charges dans le cache (vrais appels a movies-info-service), puis requetes synthetiques,
+//les services appeles etant remplaces par WarmUpExchangeFilter
+//les circuit breakers et budgets de retry sont remis a zero ensuite : seul le vrai trafic compte
+@Component
+public class WarmUpRunner extends AbstractWarmUpRunner {
+
+    private static final String MOVIE_ID = "warmup";
+    private static final List<String> URIS = List.of(
+        "/v1/movies/" + MOVIE_ID,
+        "/v1/movies/" + MOVIE_ID + "?reviews=summary",
+        "/v1/movies/" + MOVIE_ID + "?reviews=top(5)",
+        "/v1/movies/" + MOVIE_ID + "/stream");
+
+    private final MovieInfoCache movieInfoCache;
+    private final List<CircuitBreaker> circuitBreakers;
+    private final List<RetryBudget> retryBudgets;
+
+    public WarmUpRunner(WarmUpProperties properties, WarmUp warmUp, WebServerApplicationContext context,
+            MoviesInfoRestClient moviesInfoRestClient, MovieInfoCache movieInfoCache,
+            List<CircuitBreaker> circuitBreakers, List<RetryBudget> retryBudgets) {
+        super(properties, warmUp, context, URIS, List.of(MediaType.ALL), moviesInfoRestClient::retrieveMovie);
+        this.movieInfoCache = movieInfoCache;
+        this.circuitBreakers = circuitBreakers;
+        this.retryBudgets = retryBudgets;
+    }
+
+    @Override
+    protected void afterSyntheticRequests() {
+        movieInfoCache.invalidate(MOVIE_ID);
+        circuitBreakers.forEach(CircuitBreaker::reset);
+        retryBudgets.forEach(RetryBudget::reset);
+    }
+}
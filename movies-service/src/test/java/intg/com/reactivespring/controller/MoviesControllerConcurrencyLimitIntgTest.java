@@ -0,0 +1,93 @@
+package com.reactivespring.controller;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+//une seule requete a la fois : la seconde est rejetee tout de suite
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+    properties = {
+        "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+        "movies.concurrencyLimit.initialLimit=1",
+        "movies.concurrencyLimit.minLimit=1",
+        "movies.concurrencyLimit.maxLimit=1",
+        "movies.concurrencyLimit.retryAfter=2s",
+        "movies.deadline.enabled=false"
+    }
+)
+public class MoviesControllerConcurrencyLimitIntgTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testRetrieveMovieById_overTheLimit(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")
+        .withFixedDelay(1000)));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        var slow = Mono.fromCallable(() -> webTestClient.get()
+            .uri("/v1/movies/{id}", movieId)
+            .exchange()
+            .expectStatus().isOk())
+            .subscribeOn(Schedulers.boundedElastic());
+        //la seconde requete part pendant que la premiere attend movie info
+        var rejected = Mono.delay(Duration.ofMillis(300), Schedulers.boundedElastic())
+            .map(tick -> webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2"));
+        var results = Flux.merge(slow, rejected).collectList().block(Duration.ofSeconds(10));
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    void testStream_isNotLimited(){
+        stubFor(get(urlEqualTo("/v1/movieInfos/abc"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/x-ndjson")
+        .withBodyFile("reviews.ndjson")
+        //les deux flux sont ouverts en meme temps
+        .withFixedDelay(500)));
+        var statuses = Flux.range(0, 2)
+            .flatMap(i -> Mono.fromCallable(() -> webTestClient.get()
+                .uri("/v1/movies/{id}/stream", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getStatus())
+                .subscribeOn(Schedulers.boundedElastic()))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.OK), statuses);
+    }
+}
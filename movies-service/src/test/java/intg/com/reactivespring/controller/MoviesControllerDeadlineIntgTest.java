@@ -0,0 +1,83 @@
+package com.reactivespring.controller;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.reactivespring.utils.Deadline;
+
+//deadline transmise aux services appeles et requete coupee a l'expiration
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+    properties = {
+        "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+        "movies.deadline.defaultBudget=500ms"
+    }
+)
+public class MoviesControllerDeadlineIntgTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        resetAllRequests();
+    }
+
+    @Test
+    void testRetrieveMovieById_deadlineHeaderIsPropagated(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk();
+
+        verify(getRequestedFor(urlEqualTo("/v1/movieInfos/"+movieId))
+            .withHeader(Deadline.HEADER, matching("\\d+")));
+        verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+            .withHeader(Deadline.HEADER, matching("\\d+")));
+    }
+
+    @Test
+    void testRetrieveMovieById_deadlineExceeded(){
+        var movieId = "slow";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")
+        .withFixedDelay(2000)));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void testRetrieveMovieById_callerDeadlineAlreadyExpired(){
+        webTestClient.get()
+        .uri("/v1/movies/{id}", "abc")
+        .header(Deadline.HEADER, "0")
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        verify(0, getRequestedFor(urlPathMatching("/v1/.*")));
+    }
+}
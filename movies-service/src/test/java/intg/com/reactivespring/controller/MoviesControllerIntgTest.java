@@ -1,21 +1,34 @@
 package com.reactivespring.controller;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import reactor.test.StepVerifier;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -29,8 +42,19 @@ import com.reactivespring.domain.Movie;
 )
 public class MoviesControllerIntgTest {
 
+    private static final String SMILE_FIRST = "application/x-jackson-smile, application/json;q=0.5";
+
     @Autowired
     private WebTestClient webTestClient;
+
+    @Autowired
+    private CircuitBreaker reviewsCircuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        //les verify comptent les requetes de tous les tests sinon
+        WireMock.resetAllRequests();
+    }
     
     @Test
     void testRetrieveMovieById(){
@@ -146,4 +170,441 @@ public class MoviesControllerIntgTest {
         //method static de Wiremock
         verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
     }
+
+    @Test
+    void testRetrieveMoviesByIds(){
+        //simuler le servie movie info : 1 existe, 2 n'existe pas
+        stubFor(get(urlEqualTo("/v1/movieInfos/1"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlEqualTo("/v1/movieInfos/2"))
+        .willReturn(aResponse()
+        .withStatus(404)));
+        //simuler le servie review
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies?ids=1,2&ordered=true")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movies = movieExchrslt.getResponseBody();
+            assertEquals(1, Objects.requireNonNull(movies).size());
+            assertEquals("Batman Begins", movies.get(0).getMovieInfo().getName());
+            assertEquals(2, movies.get(0).getReviewList().size());
+        });
+
+        //un seul appel review pour tout le batch
+        verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+        .withQueryParam("movieInfoId", equalTo("1")));
+    }
+
+    @Test
+    void testRetrieveMoviesByIds_errorsDoNotStopTheStream(){
+        //movie info 2 et le paquet de reviews en erreur apres les retries
+        stubFor(get(urlEqualTo("/v1/movieInfos/1"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlEqualTo("/v1/movieInfos/2"))
+        .willReturn(aResponse()
+        .withStatus(500).withBody("MoviInfo Service Unavailable")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse()
+        .withStatus(500).withBody("Review Service Not Available")));
+        webTestClient.get()
+        .uri("/v1/movies?ids=1,2&ordered=true")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movies = movieExchrslt.getResponseBody();
+            assertEquals(1, Objects.requireNonNull(movies).size());
+            assertEquals("Batman Begins", movies.get(0).getMovieInfo().getName());
+            assertTrue(movies.get(0).isPartial());
+        });
+    }
+
+    @Test
+    void testRetrieveMoviesByIds_nonNumericIdHasNoReviews(){
+        var objectId = "64b0c1f2a3d4e5f6a7b8c9d0";
+        stubFor(get(urlEqualTo("/v1/movieInfos/1"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+objectId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies?ids=1,"+objectId+"&ordered=true")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movies = movieExchrslt.getResponseBody();
+            assertEquals(2, Objects.requireNonNull(movies).size());
+            assertEquals(2, movies.get(0).getReviewList().size());
+            //le service review n'a pas d'ids ObjectId : pas de reviews, mais pas partiel non plus
+            assertEquals(0, movies.get(1).getReviewList().size());
+            assertFalse(movies.get(1).isPartial());
+        });
+
+        verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+        verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+        .withQueryParam("movieInfoId", equalTo(objectId)));
+    }
+
+    @Test
+    void testRetrieveMoviesByIds_tooManyIds(){
+        var ids = IntStream.rangeClosed(1, 201)
+        .mapToObj(String::valueOf)
+        .collect(Collectors.joining(","));
+        webTestClient.get()
+        .uri("/v1/movies?ids="+ids)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isBadRequest();
+
+        verify(0, getRequestedFor(urlPathMatching("/v1/movieInfos/.*")));
+    }
+
+    @Test
+    void testRetrieveMovieById_reviews_circuitOpen(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        reviewsCircuitBreaker.transitionToForcedOpenState();
+        try {
+            webTestClient.get()
+            .uri("/v1/movies/{id}", movieId)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Movie.class)
+            .consumeWith(movieExchrslt -> {
+                var movie = movieExchrslt.getResponseBody();
+                assert Objects.requireNonNull(movie).isPartial();
+                assert movie.getReviewList().isEmpty();
+                assertEquals("Batman Begins", movie.getMovieInfo().getName());
+            });
+        } finally {
+            reviewsCircuitBreaker.transitionToClosedState();
+        }
+
+        //le service review n'est pas appele quand le circuit est ouvert
+        verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void testStreamMovieById(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/x-ndjson")
+        .withBodyFile("reviews.ndjson")));
+        var lines = webTestClient.get()
+        .uri("/v1/movies/{id}/stream?limit=2", movieId)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(String.class)
+        .getResponseBody();
+
+        //le MovieInfo d'abord, puis les reviews
+        StepVerifier.create(lines)
+        .assertNext(line -> assertTrue(line.contains("Batman Begins")))
+        .assertNext(line -> assertTrue(line.contains("Awesome Movie")))
+        .assertNext(line -> assertTrue(line.contains("Excellent Movie")))
+        .verifyComplete();
+
+        verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+        .withQueryParam("movieInfoId", equalTo(movieId))
+        .withQueryParam("limit", equalTo("2"))
+        .withHeader("Accept", equalTo(MediaType.APPLICATION_NDJSON_VALUE)));
+    }
+
+    @Test
+    void testStreamMovieById_invalidLimit(){
+        for (var limit : List.of("0", "-3", "abc")) {
+            webTestClient.get()
+            .uri("/v1/movies/{id}/stream?limit={limit}", "abc", limit)
+            .exchange()
+            .expectStatus().isBadRequest();
+        }
+
+        verify(0, getRequestedFor(urlPathMatching("/v1/.*")));
+    }
+
+    @Test
+    void testStreamMovieInfos_invalidParameters(){
+        for (var query : List.of("overflow=block", "bufferSize=0", "overflow=buffer&bufferSize=-1")) {
+            webTestClient.get()
+            .uri("/v1/movies/movieinfos/stream?" + query)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isBadRequest();
+        }
+    }
+
+    @Test
+    void testStreamMovieById_404(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse()
+        .withStatus(404)));
+        webTestClient.get()
+        .uri("/v1/movies/{id}/stream", movieId)
+        .exchange()
+        .expectStatus().isNotFound();
+
+        verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void testRetrieveMovieById_smile() throws Exception {
+        var movieId = "abc";
+        var smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        var movieInfo = new MovieInfo(movieId, "Batman Begins", 2005,
+            List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/x-jackson-smile")
+        .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        //les clients externes restent en JSON
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movie = movieExchrslt.getResponseBody();
+            assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+            assertEquals(LocalDate.parse("2005-06-15"), movie.getMovieInfo().getReleaseDate());
+            assertEquals(2, movie.getReviewList().size());
+        });
+
+        verify(getRequestedFor(urlEqualTo("/v1/movieInfos/"+movieId))
+        .withHeader("Accept", equalTo(SMILE_FIRST)));
+        verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+        .withHeader("Accept", equalTo(SMILE_FIRST)));
+    }
+
+    @Test
+    void testRetrieveMovieById_jsonFallback(){
+        var movieId = "abc";
+        //services qui ne parlent pas Smile : ils choisissent le JSON accepte en repli
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .withHeader("Accept", equalTo(SMILE_FIRST))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .withHeader("Accept", equalTo(SMILE_FIRST))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movie = movieExchrslt.getResponseBody();
+            assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+            assertEquals(2, movie.getReviewList().size());
+        });
+    }
+
+    @Test
+    void testRetrieveMovieById_reviewSummary(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews/summary"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBody("{\"movieInfoId\":1,\"count\":2,\"averageRating\":8.5,\"distribution\":{\"8\":1,\"9\":1}}")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}?reviews=summary", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.reviewSummary.count").isEqualTo(2)
+        .jsonPath("$.reviewSummary.averageRating").isEqualTo(8.5)
+        .jsonPath("$.reviewSummary.distribution.9").isEqualTo(1)
+        //la liste des reviews n'est pas envoyee
+        .jsonPath("$.reviewList").doesNotExist();
+
+        verify(getRequestedFor(urlPathEqualTo("/v1/reviews/summary"))
+        .withQueryParam("movieInfoId", equalTo(movieId)));
+        verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void testRetrieveMovieById_topReviews(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}?reviews=top(2)", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movie = movieExchrslt.getResponseBody();
+            assertEquals(2, Objects.requireNonNull(movie).getReviewList().size());
+        });
+
+        verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+        .withQueryParam("movieInfoId", equalTo(movieId))
+        .withQueryParam("limit", equalTo("2")));
+    }
+
+    @Test
+    void testRetrieveMovieById_invalidReviewsMode(){
+        webTestClient.get()
+        .uri("/v1/movies/{id}?reviews=some", "abc")
+        .exchange()
+        .expectStatus().isBadRequest();
+
+        verify(0, getRequestedFor(urlPathMatching("/v1/.*")));
+    }
+
+    @Test
+    void testRetrieveMovieById_etag(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"info1\"")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"reviews1\"")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"i-info1.r-reviews1\"")
+        .expectBody()
+        .jsonPath("$.etag").doesNotExist()
+        .jsonPath("$.movieInfo.etag").doesNotExist();
+    }
+
+    @Test
+    void testRetrieveMovieById_notModified(){
+        var movieId = "abc";
+        //les deux services confirment que leur version n'a pas change
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .withHeader("If-None-Match", equalTo("\"info1\""))
+        .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"info1\"")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .withHeader("If-None-Match", equalTo("\"reviews1\""))
+        .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"reviews1\"")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .header("If-None-Match", "\"i-info1.r-reviews1\"")
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals("ETag", "\"i-info1.r-reviews1\"")
+        .expectBody().isEmpty();
+    }
+
+    @Test
+    void testRetrieveMovieById_modified(){
+        var movieId = "abc";
+        //les reviews ont change : le film est renvoye avec le nouvel ETag
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .withHeader("If-None-Match", equalTo("\"info1\""))
+        .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"info1\"")));
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .withHeader("If-None-Match", absent())
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"info1\"")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"reviews2\"")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .header("If-None-Match", "\"i-info1.r-reviews1\"")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"i-info1.r-reviews2\"")
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> assertEquals(2,
+            Objects.requireNonNull(movieExchrslt.getResponseBody()).getReviewList().size()));
+
+        //les reviews de la reponse conditionnelle sont reutilisees : pas de second appel
+        verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void testRetrieveMovieById_movieInfoModified(){
+        var movieId = "abc";
+        //le movie info a change (200 avec body), les reviews non (304) : elles sont relues une fois
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"info2\"")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .withHeader("If-None-Match", equalTo("\"reviews1\""))
+        .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"reviews1\"")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .withHeader("If-None-Match", absent())
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withHeader("ETag", "\"reviews1\"")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .header("If-None-Match", "\"i-info1.r-reviews1\"")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"i-info2.r-reviews1\"")
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> assertEquals(2,
+            Objects.requireNonNull(movieExchrslt.getResponseBody()).getReviewList().size()));
+
+        //le movie info de la reponse conditionnelle est reutilise
+        verify(1, getRequestedFor(urlEqualTo("/v1/movieInfos/"+movieId)));
+        verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")).withHeader("If-None-Match", absent()));
+    }
+
+    @Test
+    void testRetrieveMovieById_downstreamMetrics(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk();
+        //un timer http.client.requests par service appele
+        webTestClient.get()
+        .uri("/actuator/metrics/http.client.requests?tag=downstream:reviews&tag=outcome:SUCCESS")
+        .exchange()
+        .expectStatus().isOk();
+        webTestClient.get()
+        .uri("/actuator/metrics/http.client.requests?tag=downstream:moviesInfo&tag=outcome:SUCCESS")
+        .exchange()
+        .expectStatus().isOk();
+    }
 }
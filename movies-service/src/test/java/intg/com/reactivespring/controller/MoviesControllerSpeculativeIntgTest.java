@@ -0,0 +1,77 @@
+package com.reactivespring.controller;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.reactivespring.domain.Movie;
+
+//movie info et reviews appeles en parallele
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+    properties = {
+        "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+        "movies.speculativeReviews=true"
+    }
+)
+public class MoviesControllerSpeculativeIntgTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testRetrieveMovieById(){
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("movieinfo.json")
+        .withFixedDelay(200)));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")
+        .withFixedDelay(200)));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Movie.class)
+        .consumeWith(movieExchrslt -> {
+            var movie = movieExchrslt.getResponseBody();
+            assert Objects.requireNonNull(movie).getReviewList().size() == 2;
+            assertEquals("Batman Begins", movie.getMovieInfo().getName());
+        });
+    }
+
+    @Test
+    void testRetrieveMovieById_404(){
+        var movieId = "def";
+        stubFor(get(urlEqualTo("/v1/movieInfos/"+movieId))
+        .willReturn(aResponse()
+        .withStatus(404)));
+        //les reviews sont lentes : la 404 ne doit pas les attendre
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+        .willReturn(aResponse().withHeader("Content-type", "application/json")
+        .withBodyFile("reviews.json")
+        .withFixedDelay(5000)));
+        webTestClient.get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus().isNotFound()
+        .expectBody(String.class)
+        .isEqualTo("There is no movie available for id "+movieId);
+    }
+}
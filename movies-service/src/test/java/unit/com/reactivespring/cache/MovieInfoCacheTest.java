@@ -0,0 +1,141 @@
+package com.reactivespring.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.utils.Deadline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+public class MovieInfoCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private MovieInfoCache cache(Duration ttl, boolean staleWhileRevalidate) {
+        return new MovieInfoCache(true, 100, ttl, Duration.ofMinutes(1), staleWhileRevalidate,
+            Duration.ofHours(1), registry);
+    }
+
+    private Mono<MovieInfo> movieInfo(String id) {
+        return Mono.fromCallable(() -> new MovieInfo(id, "Batman Begins " + calls.incrementAndGet(),
+            2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+    }
+
+    @Test
+    void hitDoesNotCallLoader() {
+        var cache = cache(Duration.ofMinutes(5), false);
+
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 1", m.getName()))
+            .verifyComplete();
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 1", m.getName()))
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void notFoundIsCached() {
+        var cache = cache(Duration.ofMinutes(5), false);
+        var notFound = Mono.<MovieInfo>error(new MoviesInfoClientException("There is no movie available for id abc", 404))
+            .doOnSubscribe(s -> calls.incrementAndGet());
+
+        StepVerifier.create(cache.get("abc", id -> notFound))
+            .expectErrorMessage("There is no movie available for id abc")
+            .verify();
+        StepVerifier.create(cache.get("abc", id -> notFound))
+            .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                && ((MoviesInfoClientException) ex).getStatusCode() == 404)
+            .verify();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void serverErrorIsNotCached() {
+        var cache = cache(Duration.ofMinutes(5), false);
+        var serverError = Mono.<MovieInfo>error(new MoviesInfoServerException("Server Error"))
+            .doOnSubscribe(s -> calls.incrementAndGet());
+
+        StepVerifier.create(cache.get("abc", id -> serverError))
+            .expectError(MoviesInfoServerException.class)
+            .verify();
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 2", m.getName()))
+            .verifyComplete();
+    }
+
+    @Test
+    void staleWhileRevalidate() throws InterruptedException {
+        var cache = cache(Duration.ofMillis(20), true);
+
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 1", m.getName()))
+            .verifyComplete();
+        Thread.sleep(50);
+        //valeur perimee servie, rechargement en tache de fond
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 1", m.getName()))
+            .verifyComplete();
+        StepVerifier.create(cache.get("abc", this::movieInfo))
+            .assertNext(m -> assertEquals("Batman Begins 2", m.getName()))
+            .verifyComplete();
+    }
+
+    @Test
+    void disabledAlwaysCallsLoader() {
+        var cache = new MovieInfoCache(false, 100, Duration.ofMinutes(5), Duration.ofMinutes(1), false,
+            Duration.ofHours(1), registry);
+
+        cache.get("abc", this::movieInfo).block();
+        cache.get("abc", this::movieInfo).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shortDeadlineDoesNotFailOtherWaiters() {
+        var cache = cache(Duration.ofMinutes(5), false);
+        //chargement qui respecte la deadline de son Context, comme DeadlineExchangeFilter
+        Function<String, Mono<MovieInfo>> loader = id -> {
+            var load = Mono.delay(Duration.ofMillis(200)).then(movieInfo(id));
+            return Mono.deferContextual(context -> Deadline.from(context)
+                .map(deadline -> load.timeout(deadline.remaining()))
+                .orElse(load));
+        };
+        var hurried = cache.get("abc", loader)
+            .map(MovieInfo::getName)
+            .contextWrite(Context.of(Deadline.class, Deadline.after(Duration.ofMillis(1))))
+            .onErrorResume(DeadlineExceededException.class, ex -> Mono.just("deadline exceeded"));
+        var patient = cache.get("abc", loader)
+            .map(MovieInfo::getName)
+            .contextWrite(Context.of(Deadline.class, Deadline.after(Duration.ofSeconds(5))));
+
+        StepVerifier.create(Flux.merge(hurried, patient))
+            .expectNext("deadline exceeded")
+            .expectNext("Batman Begins 1")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+}
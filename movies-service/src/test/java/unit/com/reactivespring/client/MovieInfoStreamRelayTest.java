@@ -0,0 +1,105 @@
+package com.reactivespring.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class MovieInfoStreamRelayTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private MovieInfoStreamRelay relay() {
+        return new MovieInfoStreamRelay(moviesInfoRestClient, Duration.ofMillis(10), Duration.ofMillis(50),
+            Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    private static MovieInfoEvent event(String token, String id) {
+        return new MovieInfoEvent(token, MovieInfoEvent.Type.INSERT, id,
+            new MovieInfo(id, "Movie " + id, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+    }
+
+    @Test
+    void clientsShareOneUpstreamConnection() {
+        Sinks.Many<MovieInfoEvent> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(null))
+            .thenReturn(upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        var relay = relay();
+
+        var first = relay.stream(MovieInfoStreamRelay.Overflow.DROP, 0).take(2);
+        var second = relay.stream(MovieInfoStreamRelay.Overflow.BUFFER, 16).take(2);
+
+        StepVerifier.create(Flux.merge(first, second))
+            .then(() -> {
+                upstream.tryEmitNext(event("t1", "1"));
+                upstream.tryEmitNext(event("t2", "2"));
+            })
+            .expectNextCount(4)
+            .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void reconnectsAfterLastEvent() {
+        //la reconnexion reprend apres le dernier evenement recu
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(null))
+            .thenReturn(Flux.just(event("t1", "1"), event("t2", "2"))
+                .concatWith(Flux.error(new MoviesInfoServerException("Service Unavailable"))));
+        when(moviesInfoRestClient.retrieveMovieInfoEvents("t2"))
+            .thenReturn(Flux.just(event("t3", "3")).concatWith(Flux.never()));
+
+        StepVerifier.create(relay().stream(MovieInfoStreamRelay.Overflow.LATEST, 0)
+                .map(MovieInfo::getMovieInfoId)
+                .take(3))
+            .expectNext("1", "2", "3")
+            .verifyComplete();
+    }
+
+    @Test
+    void deletesAreNotRelayed() {
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(null))
+            .thenReturn(Flux.just(event("t1", "1"), new MovieInfoEvent("t2", MovieInfoEvent.Type.DELETE, "1", null),
+                event("t3", "2")).concatWith(Flux.never()));
+
+        StepVerifier.create(relay().stream(MovieInfoStreamRelay.Overflow.LATEST, 0)
+                .map(MovieInfo::getMovieInfoId)
+                .take(2))
+            .expectNext("1", "2")
+            .verifyComplete();
+    }
+
+    @Test
+    void restartsLiveWhenResumeTokenIsGone() {
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(null))
+            .thenReturn(Flux.just(event("t1", "1"))
+                    .concatWith(Flux.error(new MoviesInfoServerException("Service Unavailable"))))
+            .thenReturn(Flux.just(event("t5", "5")).concatWith(Flux.never()));
+        when(moviesInfoRestClient.retrieveMovieInfoEvents("t1"))
+            .thenReturn(Flux.error(new MoviesInfoClientException("Cannot resume", 410)));
+
+        StepVerifier.create(relay().stream(MovieInfoStreamRelay.Overflow.LATEST, 0)
+                .map(MovieInfo::getMovieInfoId)
+                .take(2))
+            .expectNext("1", "5")
+            .verifyComplete();
+    }
+}
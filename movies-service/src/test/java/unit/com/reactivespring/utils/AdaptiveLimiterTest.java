@@ -0,0 +1,97 @@
+package com.reactivespring.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.config.ConcurrencyLimitProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdaptiveLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdaptiveLimiter limiter(int initialLimit) {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(100);
+        return new AdaptiveLimiter(properties, registry);
+    }
+
+    //limite atteinte : toutes les requetes en cours se terminent avec cette latence
+    private void saturate(AdaptiveLimiter limiter, long rttMillis, int rounds) {
+        for (var round = 0; round < rounds; round++) {
+            var acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (var i = 0; i < acquired; i++) {
+                limiter.onComplete(rttMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Test
+    void rejectsOverTheLimit() {
+        var limiter = limiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1.0, registry.get("movies.concurrency.rejected").counter().count());
+        assertEquals(2.0, registry.get("movies.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyIsStable() {
+        var limiter = limiter(10);
+
+        saturate(limiter, 10, 20);
+
+        assertTrue(limiter.getLimit() > 10);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        var limiter = limiter(20);
+        saturate(limiter, 10, 5);
+        var limit = limiter.getLimit();
+
+        //les requetes font la queue : latence x10
+        saturate(limiter, 100, 5);
+
+        assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    void limitDoesNotGrowWhenUnderused() {
+        var limiter = limiter(10);
+
+        for (var i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.onComplete(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void cancelledRequestReleasesItsSlot() {
+        var limiter = limiter(2);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.onIgnore();
+
+        assertTrue(limiter.tryAcquire());
+    }
+}
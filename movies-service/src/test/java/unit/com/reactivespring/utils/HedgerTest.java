@@ -0,0 +1,141 @@
+package com.reactivespring.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.warmup.WarmUp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class HedgerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Hedger hedger(double maxTokens) {
+        var properties = new RestClientProperties.Hedge();
+        properties.setEnabled(true);
+        properties.setDelay(Duration.ofMillis(50));
+        properties.setMaxTokens(maxTokens);
+        return new Hedger("moviesInfo", properties, registry);
+    }
+
+    //premier appel lent, second appel rapide
+    private Mono<String> call() {
+        if (calls.incrementAndGet() == 1) {
+            return Mono.just("primary").delayElement(Duration.ofSeconds(2));
+        }
+        return Mono.just("hedge");
+    }
+
+    @Test
+    void slowPrimaryIsHedged() {
+        StepVerifier.create(hedger(10).hedge(this::call))
+            .expectNext("hedge")
+            .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("restclient.hedge.fired").counter().count());
+        assertEquals(1.0, registry.get("restclient.hedge.won").counter().count());
+    }
+
+    @Test
+    void losingPrimaryLatencyIsRecorded() {
+        StepVerifier.create(hedger(10).hedge(this::call))
+            .expectNext("hedge")
+            .verifyComplete();
+
+        //la premiere requete, annulee, compte pour au moins le delai de couverture
+        var latency = registry.get("restclient.hedge.latency").timer();
+        assertEquals(2, latency.count());
+        assertTrue(latency.totalTime(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void primaryFailingAfterHedgeDoesNotWin() {
+        Supplier<Mono<String>> call = () -> calls.incrementAndGet() == 1
+            ? Mono.<String>error(new MoviesInfoServerException("unavailable")).delaySubscription(Duration.ofMillis(100))
+            : Mono.just("hedge").delayElement(Duration.ofMillis(200));
+
+        StepVerifier.create(hedger(10).hedge(call))
+            .expectNext("hedge")
+            .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("restclient.hedge.won").counter().count());
+    }
+
+    @Test
+    void primaryErrorBeforeHedgePropagates() {
+        Supplier<Mono<String>> call = () -> {
+            calls.incrementAndGet();
+            return Mono.error(new MoviesInfoClientException("not found", 404));
+        };
+
+        StepVerifier.create(hedger(10).hedge(call))
+            .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                && ((MoviesInfoClientException) ex).getStatusCode() == 404)
+            .verify(Duration.ofMillis(40));
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get("restclient.hedge.fired").counter().count());
+    }
+
+    @Test
+    void primaryErrorWinsWhenHedgeFailsToo() {
+        Supplier<Mono<String>> call = () -> calls.incrementAndGet() == 1
+            ? Mono.<String>error(new MoviesInfoClientException("not found", 404)).delaySubscription(Duration.ofMillis(100))
+            : Mono.error(new MoviesInfoServerException("unavailable"));
+
+        StepVerifier.create(hedger(10).hedge(call))
+            .expectErrorMatches(ex -> ((MoviesInfoClientException) ex).getStatusCode() == 404)
+            .verify();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        StepVerifier.create(hedger(10).hedge(() -> Mono.just("primary").doOnSubscribe(s -> calls.incrementAndGet())))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get("restclient.hedge.fired").counter().count());
+    }
+
+    @Test
+    void noHedgeWhenBudgetIsExhausted() {
+        StepVerifier.create(hedger(0).hedge(this::call))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("restclient.hedge.skipped").counter().count());
+    }
+
+    @Test
+    void warmUpIsNeitherHedgedNorTimed() {
+        var slow = Mono.just("primary").delayElement(Duration.ofMillis(200)).doOnSubscribe(s -> calls.incrementAndGet());
+        StepVerifier.create(hedger(10).hedge(() -> slow).contextWrite(WarmUp::mark))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get("restclient.hedge.fired").counter().count());
+        assertEquals(0, registry.get("restclient.hedge.latency").timer().count());
+    }
+}
@@ -0,0 +1,107 @@
+package com.reactivespring.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RetryUtilsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private RestClientProperties.Retry retryProperties(double maxTokens) {
+        var properties = new RestClientProperties.Retry();
+        properties.setMinBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(10));
+        properties.setBudgetMinPerSecond(0);
+        properties.setBudgetMaxTokens(maxTokens);
+        return properties;
+    }
+
+    @Test
+    void retriesServerErrorsUpToMaxRetries() {
+        var properties = retryProperties(100);
+        var budget = new RetryBudget("moviesInfo", properties, registry);
+        var calls = new AtomicInteger();
+        var call = Mono.error(() -> new MoviesInfoServerException("Server Error " + calls.incrementAndGet()));
+
+        StepVerifier.create(call.retryWhen(RetryUtils.retrySpec(properties, budget)))
+            .expectErrorMessage("Server Error 4")
+            .verify();
+
+        assertEquals(4, calls.get());
+        assertEquals(3.0, registry.get("restclient.retries").counter().count());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        var properties = retryProperties(100);
+        var budget = new RetryBudget("moviesInfo", properties, registry);
+        var calls = new AtomicInteger();
+        var call = Mono.error(() -> new MoviesInfoClientException("Not found " + calls.incrementAndGet(), 404));
+
+        StepVerifier.create(call.retryWhen(RetryUtils.retrySpec(properties, budget)))
+            .expectErrorMessage("Not found 1")
+            .verify();
+    }
+
+    @Test
+    void stopsRetryingWhenBudgetIsExhausted() {
+        var properties = retryProperties(2);
+        var budget = new RetryBudget("moviesInfo", properties, registry);
+        var calls = new AtomicInteger();
+        var call = Mono.error(() -> new MoviesInfoServerException("Server Error " + calls.incrementAndGet()));
+
+        StepVerifier.create(call.retryWhen(RetryUtils.retrySpec(properties, budget)))
+            .expectErrorMessage("Server Error 3")
+            .verify();
+
+        assertEquals(1.0, registry.get("restclient.retry.budget.exhausted").counter().count());
+    }
+
+    @Test
+    void budgetIsRefilledByTraffic() {
+        var properties = retryProperties(1);
+        properties.setBudgetRatio(0.5);
+        var budget = new RetryBudget("moviesInfo", properties, registry);
+
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        budget.onRequest();
+        budget.onRequest();
+        assertTrue(budget.tryAcquire());
+    }
+
+    @Test
+    void resetFillsTheBudget() {
+        var properties = retryProperties(2);
+        var budget = new RetryBudget("moviesInfo", properties, registry);
+
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        budget.reset();
+        assertEquals(2.0, budget.availableTokens());
+    }
+
+    @Test
+    void backoffStaysUnderCeiling() {
+        var properties = retryProperties(100);
+        for (long retry = 0; retry < 64; retry++) {
+            var backoff = RetryUtils.backoff(retry, properties).toMillis();
+            assertTrue(backoff >= 0 && backoff <= Math.min(10, 1L << Math.min(retry, 30)));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.reactivespring.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.reactivespring.exception.DeadlineExceededException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void mono_sharesOneCall() {
+        var calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        var first = singleFlight.mono("abc", () -> upstream.asMono().doOnSubscribe(s -> calls.incrementAndGet()));
+        var second = singleFlight.mono("abc", () -> upstream.asMono().doOnSubscribe(s -> calls.incrementAndGet()));
+
+        StepVerifier.create(Flux.merge(first, second))
+            .then(() -> upstream.tryEmitValue("Batman Begins"))
+            .expectNext("Batman Begins", "Batman Begins")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void mono_errorGoesToEveryWaiter() {
+        Sinks.One<String> upstream = Sinks.one();
+        var first = singleFlight.mono("abc", upstream::asMono)
+            .onErrorResume(ex -> Mono.just("first: " + ex.getMessage()));
+        var second = singleFlight.mono("abc", upstream::asMono)
+            .onErrorResume(ex -> Mono.just("second: " + ex.getMessage()));
+
+        StepVerifier.create(Flux.merge(first, second))
+            .then(() -> upstream.tryEmitError(new RuntimeException("boom")))
+            .expectNext("first: boom", "second: boom")
+            .verifyComplete();
+
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void mono_cancelledWaiterDoesNotCancelOthers() {
+        var calls = new AtomicInteger();
+        var upstreamCancelled = new AtomicBoolean();
+        var received = new AtomicReference<String>();
+        Sinks.One<String> upstream = Sinks.one();
+        Supplier<Mono<String>> call = () -> upstream.asMono()
+            .doOnSubscribe(s -> calls.incrementAndGet())
+            .doOnCancel(() -> upstreamCancelled.set(true));
+
+        //les deux appelants attendent le meme appel, l'un annule avant la reponse
+        var cancelled = singleFlight.mono("abc", call).subscribe();
+        singleFlight.mono("abc", call).subscribe(received::set);
+        cancelled.dispose();
+        upstream.tryEmitValue("Batman Begins");
+
+        assertEquals("Batman Begins", received.get());
+        assertEquals(1, calls.get());
+        assertFalse(upstreamCancelled.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    //appel qui respecte la deadline de son Context, comme DeadlineExchangeFilter
+    private static Mono<String> callHonouringDeadline(AtomicInteger calls) {
+        var call = Mono.delay(Duration.ofMillis(200)).thenReturn("Batman Begins");
+        return Mono.deferContextual(context -> Deadline.from(context)
+                .map(deadline -> call.timeout(deadline.remaining()))
+                .orElse(call))
+            .doOnSubscribe(s -> calls.incrementAndGet());
+    }
+
+    @Test
+    void mono_shortDeadlineDoesNotFailOtherWaiters() {
+        var calls = new AtomicInteger();
+        var hurried = singleFlight.mono("abc", () -> callHonouringDeadline(calls))
+            .contextWrite(Context.of(Deadline.class, Deadline.after(Duration.ofMillis(1))))
+            .onErrorResume(DeadlineExceededException.class, ex -> Mono.just("deadline exceeded"));
+        var patient = singleFlight.mono("abc", () -> callHonouringDeadline(calls))
+            .contextWrite(Context.of(Deadline.class, Deadline.after(Duration.ofSeconds(5))));
+
+        //l'appelant a 1 ms declenche l'appel partage, celui a 5 s doit quand meme recevoir le film
+        StepVerifier.create(Flux.merge(hurried, patient))
+            .expectNext("deadline exceeded")
+            .expectNext("Batman Begins")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void flux_lateWaiterGetsAllElements() {
+        var calls = new AtomicInteger();
+        var lateCount = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        var first = singleFlight.flux("abc", () -> upstream.asFlux().doOnSubscribe(s -> calls.incrementAndGet()));
+
+        StepVerifier.create(first)
+            .then(() -> upstream.tryEmitNext("review 1"))
+            .expectNext("review 1")
+            .then(() -> {
+                //arrive apres le premier element
+                singleFlight.flux("abc", () -> Flux.error(new IllegalStateException("not shared")))
+                    .count()
+                    .subscribe(count -> lateCount.set(count.intValue()));
+                upstream.tryEmitNext("review 2");
+                upstream.tryEmitComplete();
+            })
+            .expectNext("review 2")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(2, lateCount.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void newCallAfterCompletion() {
+        var calls = new AtomicInteger();
+        var call = singleFlight.mono("abc", () -> Mono.fromCallable(() -> "call " + calls.incrementAndGet()));
+
+        StepVerifier.create(call).expectNext("call 1").verifyComplete();
+        StepVerifier.create(call).expectNext("call 2").verifyComplete();
+    }
+}